@@ -2,11 +2,23 @@ package ch.temparus.android.advancedrecyclerview;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.Parcelable;
 import android.support.v7.widget.*;
 import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.helper.ItemTouchHelper;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * AdvancedRecyclerView is an extended RecyclerView with the addition of headers at the top of the scrolling area.
@@ -17,26 +29,102 @@ import android.view.View;
  */
 public class AdvancedRecyclerView extends RecyclerView {
 
+    private static final String STATE_SUPER = "superState";
+    private static final String STATE_SELECTION = "selection";
+
+    /**
+     * The adapter has content items.
+     */
+    public static final int STATE_CONTENT = 0;
+    /**
+     * The adapter has no content items.
+     */
+    public static final int STATE_EMPTY = 1;
+    /**
+     * The adapter has no content items and they are being loaded.
+     */
+    public static final int STATE_LOADING = 2;
+    /**
+     * The adapter has no content items and loading them has failed.
+     */
+    public static final int STATE_ERROR = 3;
+    private static final int DEFERRED_BINDING_VELOCITY_DP = 2000;
+    private static final long MAX_VELOCITY_SAMPLE_NANOS = 100000000L;
+
     final private AdapterDataObserver mObserver = new AdapterDataObserver() {
         @Override
         public void onChanged() {
-            checkIfEmpty();
+            updateState(true);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            updateState(true);
         }
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
-            checkIfEmpty();
+            if (mVisibilityTracker != null) {
+                mVisibilityTracker.onItemRangeInserted(positionStart, itemCount);
+            }
+            updateState(true);
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
-            checkIfEmpty();
+            if (mVisibilityTracker != null) {
+                mVisibilityTracker.onItemRangeRemoved(positionStart, itemCount);
+            }
+            updateState(true);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (mVisibilityTracker != null) {
+                mVisibilityTracker.onItemRangeMoved(fromPosition, toPosition, itemCount);
+            }
+            updateState(true);
         }
     };
 
     private int mOverScrollMode = -1;
-    private View mEmptyView;
+    private final View[] mStateViews = new View[4];
+    private final ViewFactory[] mStateViewFactories = new ViewFactory[4];
+    private int mState = -1;
+    private boolean mLoading = false;
+    private boolean mError = false;
+    private boolean mHidden = false;
+    private final Runnable mEmptyViewUpdate = new Runnable() {
+        @Override
+        public void run() {
+            if (getAdapter() instanceof BaseAdapter) {
+                ((BaseAdapter) getAdapter()).setEmptyViewEnabled(mState == STATE_EMPTY);
+            }
+        }
+    };
     private View.OnTouchListener mOnInterceptTouchListener;
+    private ItemTouchCallback mItemTouchCallback;
+    private ItemTouchHelper mItemTouchHelper;
+    private SelectionState mPendingSelectionState;
+    private RecyclerMetrics mMetrics;
+    private JankDetector mJankDetector;
+    private OnScrollListener mScrollListener;
+    private FastScroller mFastScroller;
+    private VisibilityTracker mVisibilityTracker;
+    // draw(...) is running and whether the section of the decorations drawn over the children has been begun
+    private boolean mDrawing = false;
+    private boolean mDrawOverTraced = false;
+    private boolean mDeferredBindingEnabled = false;
+    private int mDeferredBindingVelocity = -1;
+    private boolean mBindDeferred = false;
+    private float mScrollVelocity = 0;
+    private long mLastScrolledTime = 0;
+    private final Runnable mFullBindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestFullBind();
+        }
+    };
 
     public AdvancedRecyclerView(Context context) {
         this(context, null);
@@ -56,25 +144,92 @@ public class AdvancedRecyclerView extends RecyclerView {
 
     @Override
     public void setLayoutManager(LayoutManager manager) {
+        applyMetrics(getLayoutManager(), null);
         if (manager instanceof GridLayoutManager) {
             final GridLayoutManager gridManager = (GridLayoutManager) manager;
-            gridManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
-                @Override
-                public int getSpanSize(int position) {
-                    Adapter adapter = getAdapter();
-                    if (adapter instanceof AdvancedRecyclerAdapter) {
-                        AdvancedRecyclerAdapter headerAdapter = (AdvancedRecyclerAdapter) adapter;
-                        if (position < headerAdapter.getHeaderCount() || (headerAdapter.getContentItemCount() == 0 && position == headerAdapter.getHeaderCount())) {
-                            return gridManager.getSpanCount();
-                        }
-                    }
-                    return 1;
-                }
-            });
+            gridManager.setSpanSizeLookup(new HeaderSpanSizeLookup(this, gridManager));
             super.setLayoutManager(gridManager);
         } else {
             super.setLayoutManager(manager);
         }
+        applyMetrics(manager, mMetrics);
+    }
+
+    /**
+     * Set metrics for recording the work done by this view, its BaseAdapter and the layout managers of this library.
+     *
+     * Note: Recording is disabled by default and costs almost nothing while disabled.
+     * @param metrics metrics to be recorded or null to disable recording
+     */
+    @SuppressWarnings("unused")
+    public void setMetrics(RecyclerMetrics metrics) {
+        mMetrics = metrics;
+        applyMetrics(getAdapter(), metrics);
+        applyMetrics(getLayoutManager(), metrics);
+    }
+
+    /**
+     * Set a jank detector attributing slow scroll frames to the positions and view types created or bound in them.
+     *
+     * Note: The connected adapter has to be a BaseAdapter.
+     * @param jankDetector jank detector or null to disable the detection
+     */
+    @SuppressWarnings("unused")
+    public void setJankDetector(JankDetector jankDetector) {
+        if (mJankDetector != null) {
+            mJankDetector.setScrolling(false);
+        }
+        mJankDetector = jankDetector;
+        if (getAdapter() instanceof BaseAdapter) {
+            ((BaseAdapter) getAdapter()).setJankDetector(jankDetector);
+        }
+        if (jankDetector != null) {
+            jankDetector.setScrolling(getScrollState() != SCROLL_STATE_IDLE);
+            ensureScrollListener();
+        }
+    }
+
+    /**
+     * Set a tracker reporting content items entering and exiting the visible area, e.g. to log impressions.
+     * @param visibilityTracker visibility tracker or null to disable the tracking
+     */
+    @SuppressWarnings("unused")
+    public void setVisibilityTracker(VisibilityTracker visibilityTracker) {
+        if (mVisibilityTracker != null) {
+            mVisibilityTracker.detach();
+        }
+        mVisibilityTracker = visibilityTracker;
+        if (visibilityTracker != null) {
+            ensureScrollListener();
+            visibilityTracker.attach(this);
+        }
+    }
+
+    /**
+     * Get the visibility tracker set with setVisibilityTracker(...)
+     * @return visibility tracker or null if the tracking is disabled
+     */
+    @SuppressWarnings("unused")
+    public VisibilityTracker getVisibilityTracker() {
+        return mVisibilityTracker;
+    }
+
+    /**
+     * Get the jank detector set with setJankDetector(...)
+     * @return jank detector or null if the detection is disabled
+     */
+    @SuppressWarnings("unused")
+    public JankDetector getJankDetector() {
+        return mJankDetector;
+    }
+
+    /**
+     * Get the metrics set with setMetrics(...)
+     * @return metrics or null if recording is disabled
+     */
+    @SuppressWarnings("unused")
+    public RecyclerMetrics getMetrics() {
+        return mMetrics;
     }
 
     /**
@@ -91,18 +246,289 @@ public class AdvancedRecyclerView extends RecyclerView {
         return super.onInterceptTouchEvent(motionEvent) || (mOnInterceptTouchListener != null && mOnInterceptTouchListener.onTouch(this, motionEvent));
     }
 
+    /**
+     * Enable or disable reordering of content items by long-press drag and drop.
+     *
+     * Note: The connected adapter has to be a BaseAdapter overriding isContentMovable(int) and onContentItemMoved(int, int).
+     * @param enabled true - if content items can be dragged; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setItemDragEnabled(boolean enabled) {
+        getItemTouchCallback().setDragEnabled(enabled);
+    }
+
+    /**
+     * Enable or disable swipe to dismiss of content items.
+     *
+     * Note: The connected adapter has to be a BaseAdapter overriding isContentSwipeable(int) and onContentItemSwiped(int, int).
+     * @param enabled true - if content items can be swiped; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setItemSwipeEnabled(boolean enabled) {
+        getItemTouchCallback().setSwipeEnabled(enabled);
+    }
+
+    /**
+     * Start dragging the given content item, e.g. when a drag handle is touched.
+     * @param viewHolder ViewHolder of the content item to be dragged
+     */
+    @SuppressWarnings("unused")
+    public void startItemDrag(ViewHolder viewHolder) {
+        getItemTouchCallback();
+        mItemTouchHelper.startDrag(viewHolder);
+    }
+
+    /**
+     * Enable or disable the automatic sizing of the RecycledViewPool.
+     *
+     * If enabled, an {@link AutoTuningViewPool} grows the capacity of every view type which keeps being created
+     * while ViewHolders of the same type are discarded, bounded by the visible items, the span count of grid
+     * layout managers and the budget set with setRecycledViewPoolBudget(int).
+     *
+     * Note: Disabling the auto tuning replaces the pool with a new default RecycledViewPool.
+     * @param enabled true - if the pool should be sized automatically; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setRecycledViewPoolAutoTuningEnabled(boolean enabled) {
+        final boolean tuning = getRecycledViewPool() instanceof AutoTuningViewPool;
+        if (enabled && !tuning) {
+            setRecycledViewPool(new AutoTuningViewPool(this));
+        } else if (!enabled && tuning) {
+            setRecycledViewPool(new RecycledViewPool());
+        }
+    }
+
+    /**
+     * Set the maximum number of ViewHolders kept by the auto tuning RecycledViewPool over all view types.
+     *
+     * Note: Has no effect unless the auto tuning has been enabled before.
+     * @param maxViewHolders maximum number of pooled ViewHolders (default: 64)
+     */
+    @SuppressWarnings("unused")
+    public void setRecycledViewPoolBudget(int maxViewHolders) {
+        if (getRecycledViewPool() instanceof AutoTuningViewPool) {
+            ((AutoTuningViewPool) getRecycledViewPool()).setBudget(maxViewHolders);
+        }
+    }
+
+    /**
+     * Enable or disable the fast scroller, a draggable scrollbar thumb with an optional section bubble.
+     *
+     * Note: The fast scroller supports vertical lists and grids. Its position is most accurate with
+     *       the LinearLayoutManager or GridLayoutManager of this library.
+     * @param enabled true - if the fast scroller should be shown; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setFastScrollEnabled(boolean enabled) {
+        if (enabled && mFastScroller == null) {
+            mFastScroller = new FastScroller(this);
+            mFastScroller.attach();
+        } else if (!enabled && mFastScroller != null) {
+            mFastScroller.detach();
+            mFastScroller = null;
+        }
+    }
+
+    /**
+     * Enable or disable deferred binding of content items while this view is scrolled fast.
+     *
+     * While the scroll velocity is above the deferred binding velocity, the BaseAdapter binds content items with
+     * onBindContentPlaceholder(...). Once the scrolling slows down or stops, the visible placeholders are bound
+     * again in place with onBindContentViewHolder(...), without a change notification and its change animation.
+     *
+     * Note: The connected adapter has to be a BaseAdapter overriding onBindContentPlaceholder(...)
+     * @param enabled true - if binds should be deferred during fast scrolling; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setDeferredBindingEnabled(boolean enabled) {
+        mDeferredBindingEnabled = enabled;
+        if (enabled) {
+            ensureScrollListener();
+        } else {
+            setBindDeferred(false);
+        }
+    }
+
+    /**
+     * Set the scroll velocity above which content items are bound with placeholders.
+     * @param pixelsPerSecond velocity in pixels per second (default: 2000dp per second)
+     */
+    @SuppressWarnings("unused")
+    public void setDeferredBindingVelocity(int pixelsPerSecond) {
+        mDeferredBindingVelocity = pixelsPerSecond;
+    }
+
+    @Override
+    public boolean fling(int velocityX, int velocityY) {
+        final boolean flinging = super.fling(velocityX, velocityY);
+        if (flinging && mDeferredBindingEnabled) {
+            // the first frames of a fling bind the most items, so they are deferred before any velocity is sampled
+            mScrollVelocity = Math.max(Math.abs(velocityX), Math.abs(velocityY));
+            mLastScrolledTime = 0;
+            setBindDeferred(mScrollVelocity > getDeferredBindingVelocity());
+        }
+        return flinging;
+    }
+
+    /**
+     * Update the scroll velocity with the distance scrolled since the last call.
+     */
+    private void sampleScrollVelocity(int dx, int dy) {
+        final long now = System.nanoTime();
+        final long elapsed = now - mLastScrolledTime;
+        mLastScrolledTime = now;
+        if (elapsed <= 0 || elapsed > MAX_VELOCITY_SAMPLE_NANOS) return;
+        final float velocity = Math.max(Math.abs(dx), Math.abs(dy)) * 1e9f / elapsed;
+        mScrollVelocity = (mScrollVelocity + velocity) / 2;
+        setBindDeferred(mScrollVelocity > getDeferredBindingVelocity());
+    }
+
+    private int getDeferredBindingVelocity() {
+        if (mDeferredBindingVelocity < 0) {
+            mDeferredBindingVelocity = (int) (DEFERRED_BINDING_VELOCITY_DP * getResources().getDisplayMetrics().density + 0.5f);
+        }
+        return mDeferredBindingVelocity;
+    }
+
+    private void setBindDeferred(boolean deferred) {
+        if (mBindDeferred == deferred) return;
+        mBindDeferred = deferred;
+        if (getAdapter() instanceof BaseAdapter) {
+            ((BaseAdapter) getAdapter()).setBindDeferred(deferred);
+        }
+        removeCallbacks(mFullBindRunnable);
+        if (!deferred) {
+            // notifications are not allowed while the scroll is dispatched
+            post(mFullBindRunnable);
+        }
+    }
+
+    /**
+     * Bind all visible placeholders again in place. No change is notified, so the item animator does not
+     * run a change animation for every placeholder.
+     */
+    @SuppressWarnings("unchecked")
+    private void requestFullBind() {
+        final Adapter adapter = getAdapter();
+        if (adapter == null) return;
+        boolean pending = false;
+        for (int i = 0; i < getChildCount(); i++) {
+            final ViewHolder holder = getChildViewHolder(getChildAt(i));
+            if (!BaseAdapter.isPlaceholderBound(holder)) continue;
+            final int position = holder.getAdapterPosition();
+            if (position == NO_POSITION) continue;
+            if (position != holder.getLayoutPosition()) {
+                // adapter updates are pending, the holder is tried again in the next frame
+                pending = true;
+                continue;
+            }
+            adapter.bindViewHolder(holder, position);
+        }
+        if (pending) {
+            post(mFullBindRunnable);
+        }
+    }
+
+    /**
+     * Get the fast scroller to customize its appearance or set a section title provider.
+     * @return fast scroller or null if it is disabled
+     */
+    @SuppressWarnings("unused")
+    public FastScroller getFastScroller() {
+        return mFastScroller;
+    }
+
     @Override
     public void setAdapter(Adapter adapter) {
         final Adapter oldAdapter = getAdapter();
         if (oldAdapter != null) {
             oldAdapter.unregisterAdapterDataObserver(mObserver);
+            applyMetrics(oldAdapter, null);
+            if (oldAdapter instanceof BaseAdapter) {
+                ((BaseAdapter) oldAdapter).setJankDetector(null);
+                ((BaseAdapter) oldAdapter).setBindDeferred(false);
+                ((BaseAdapter) oldAdapter).setEmptyViewEnabled(true);
+            }
+        }
+        if (mVisibilityTracker != null) {
+            // positions and ids of the old adapter do not identify items of the new one
+            mVisibilityTracker.exitAll();
         }
         super.setAdapter(adapter);
         if (adapter != null) {
             adapter.registerAdapterDataObserver(mObserver);
+            applyMetrics(adapter, mMetrics);
+            if (adapter instanceof BaseAdapter) {
+                ((BaseAdapter) adapter).setJankDetector(mJankDetector);
+                ((BaseAdapter) adapter).setBindDeferred(mBindDeferred);
+            }
+            if (mPendingSelectionState != null && adapter instanceof RangeSelectionRecyclerAdapter) {
+                ((RangeSelectionRecyclerAdapter) adapter).setSelectionState(mPendingSelectionState);
+                mPendingSelectionState = null;
+            }
         }
 
-        checkIfEmpty();
+        mState = -1;
+        updateState(false);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mVisibilityTracker != null) {
+            mVisibilityTracker.exitAll();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // a lazily created state view can only be added once this view has a parent,
+        // but not while the parent dispatches the attach to its children
+        if (mState >= 0 && mStateViews[mState] == null && mStateViewFactories[mState] != null) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    mState = -1;
+                    updateState(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Bundle state = new Bundle();
+        state.putParcelable(STATE_SUPER, super.onSaveInstanceState());
+        Adapter adapter = getAdapter();
+        if (adapter instanceof RangeSelectionRecyclerAdapter) {
+            state.putParcelable(STATE_SELECTION, ((RangeSelectionRecyclerAdapter) adapter).getSelectionState());
+        } else if (mPendingSelectionState != null) {
+            state.putParcelable(STATE_SELECTION, mPendingSelectionState);
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof Bundle)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        Bundle bundle = (Bundle) state;
+        bundle.setClassLoader(getClass().getClassLoader());
+        super.onRestoreInstanceState(bundle.getParcelable(STATE_SUPER));
+
+        SelectionState selectionState = bundle.getParcelable(STATE_SELECTION);
+        if (selectionState != null) {
+            Adapter adapter = getAdapter();
+            if (adapter instanceof RangeSelectionRecyclerAdapter) {
+                // the adapter is already connected, otherwise the selection is restored in setAdapter(...)
+                ((RangeSelectionRecyclerAdapter) adapter).setSelectionState(selectionState);
+            } else {
+                mPendingSelectionState = selectionState;
+            }
+        }
     }
 
     @Override
@@ -115,37 +541,408 @@ public class AdvancedRecyclerView extends RecyclerView {
     /**
      * Set Empty view.
      *
-     * This view will be displayed whenever the connected adapter is empty.
+     * This view will be displayed instead of this view whenever the connected adapter has no content items.
+     * If the adapter has header views, this view stays visible to display them.
      * The view has to be attached to a parent in the view hierarchy for being visible.
      * @param emptyView view to be displayed
      */
     @SuppressWarnings("unused")
     public void setEmptyView(View emptyView) {
-        mEmptyView = emptyView;
-        checkIfEmpty();
+        setStateView(STATE_EMPTY, emptyView, null);
+    }
+
+    /**
+     * Set a factory creating the empty view once the connected adapter is empty for the first time.
+     *
+     * The created view is added to the parent of this view right behind it. If the created view has no
+     * layout params, a copy of the layout params of this view is used (including margins and the gravity,
+     * weight or rules of a LinearLayout, FrameLayout or RelativeLayout parent).
+     * @param factory empty view factory
+     */
+    @SuppressWarnings("unused")
+    public void setEmptyView(ViewFactory factory) {
+        setStateView(STATE_EMPTY, null, factory);
+    }
+
+    /**
+     * Set the view displayed instead of this view while loading and the connected adapter has no content items.
+     * @param loadingView view to be displayed
+     */
+    @SuppressWarnings("unused")
+    public void setLoadingView(View loadingView) {
+        setStateView(STATE_LOADING, loadingView, null);
+    }
+
+    /**
+     * Set a factory creating the loading view once it is displayed for the first time.
+     * @param factory loading view factory
+     */
+    @SuppressWarnings("unused")
+    public void setLoadingView(ViewFactory factory) {
+        setStateView(STATE_LOADING, null, factory);
+    }
+
+    /**
+     * Set the view displayed instead of this view after an error while the connected adapter has no content items.
+     * @param errorView view to be displayed
+     */
+    @SuppressWarnings("unused")
+    public void setErrorView(View errorView) {
+        setStateView(STATE_ERROR, errorView, null);
+    }
+
+    /**
+     * Set a factory creating the error view once it is displayed for the first time.
+     * @param factory error view factory
+     */
+    @SuppressWarnings("unused")
+    public void setErrorView(ViewFactory factory) {
+        setStateView(STATE_ERROR, null, factory);
+    }
+
+    /**
+     * Mark the content items as being loaded. While the adapter has no content items,
+     * the loading view is displayed instead of the empty view.
+     * @param loading true - while loading; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setLoading(boolean loading) {
+        mLoading = loading;
+        updateState(false);
+    }
+
+    /**
+     * Mark loading the content items as failed. While the adapter has no content items,
+     * the error view is displayed instead of the loading view and the empty view.
+     * @param error true - after an error; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setError(boolean error) {
+        mError = error;
+        updateState(false);
+    }
+
+    /**
+     * Returns the current state of this view.
+     * @return STATE_CONTENT, STATE_EMPTY, STATE_LOADING or STATE_ERROR
+     */
+    @SuppressWarnings("unused")
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * Save the measured item extents, the span layout and the scroll position to the given file,
+     * e.g. in onStop(), so the next start can restore them with restoreLayoutSnapshot(...).
+     *
+     * Note: Only the layout managers of this library are supported.
+     * @param file snapshot file, e.g. in the cache directory
+     * @param dataVersion version of the adapter data the layout belongs to
+     * @return true - if the snapshot has been saved; false - if the layout manager is not supported
+     * @throws IOException if the file cannot be written
+     */
+    @SuppressWarnings("unused")
+    public boolean saveLayoutSnapshot(File file, long dataVersion) throws IOException {
+        final LayoutManager layoutManager = getLayoutManager();
+        final LayoutSnapshot snapshot = layoutManager == null ? null : LayoutSnapshot.capture(layoutManager, dataVersion);
+        if (snapshot == null) {
+            return false;
+        }
+        snapshot.writeTo(file);
+        return true;
+    }
+
+    /**
+     * Restore a layout snapshot saved with saveLayoutSnapshot(...). The first layout starts at the saved scroll
+     * position and takes the saved extents instead of measuring the items again.
+     *
+     * Note: Call this method after the layout manager and the adapter with its data have been set.
+     * @param file snapshot file
+     * @param dataVersion current version of the adapter data
+     * @return true - if the snapshot has been restored; false - if there is no matching snapshot
+     * @throws IOException if the file cannot be read
+     */
+    @SuppressWarnings("unused")
+    public boolean restoreLayoutSnapshot(File file, long dataVersion) throws IOException {
+        final LayoutManager layoutManager = getLayoutManager();
+        if (layoutManager == null) {
+            return false;
+        }
+        final LayoutSnapshot snapshot = LayoutSnapshot.read(file, dataVersion);
+        return snapshot != null && snapshot.restore(layoutManager);
+    }
+
+    /**
+     * Enable or disable named systrace / Perfetto sections around the hot paths of this library,
+     * e.g. creating and binding ViewHolders, measuring children and drawing item decorations.
+     *
+     * Note: Tracing is disabled by default and only available on Android 4.3 and above.
+     * @param enabled true - if trace sections should be written; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public static void setTracingEnabled(boolean enabled) {
+        TraceSection.setEnabled(enabled);
+    }
+
+    @Override
+    public void onDraw(Canvas canvas) {
+        final boolean traced = TraceSection.begin(TraceSection.DRAW_DECORATIONS);
+        try {
+            super.onDraw(canvas);
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        mDrawing = true;
+        try {
+            super.draw(canvas);
+        } finally {
+            mDrawing = false;
+            TraceSection.end(mDrawOverTraced);
+            mDrawOverTraced = false;
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        // RecyclerView.draw(...) calls onDrawOver(...) of the item decorations once the children have been drawn.
+        // dispatchDraw(...) may also be called without draw(...), then there is no section to end it.
+        if (mDrawing && !mDrawOverTraced) {
+            mDrawOverTraced = TraceSection.begin(TraceSection.DRAW_DECORATIONS_OVER);
+        }
     }
 
     @Override
     protected void onLayout (boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
         applyOverScrollMode();
+        if (mVisibilityTracker != null) {
+            mVisibilityTracker.scheduleEvaluation();
+        }
+    }
+
+    private ItemTouchCallback getItemTouchCallback() {
+        if (mItemTouchCallback == null) {
+            mItemTouchCallback = new ItemTouchCallback(this);
+            mItemTouchHelper = new ItemTouchHelper(mItemTouchCallback);
+            mItemTouchHelper.attachToRecyclerView(this);
+        }
+        return mItemTouchCallback;
+    }
+
+    private void setStateView(int state, View view, ViewFactory factory) {
+        final View oldView = mStateViews[state];
+        if (oldView != null && oldView != view && state == mState) {
+            hideView(oldView);
+        }
+        mStateViews[state] = view;
+        mStateViewFactories[state] = factory;
+        if (view != null && state != mState) {
+            hideView(view);
+        }
+        if (state == mState) {
+            mState = -1;
+        }
+        updateState(false);
     }
 
-    private void checkIfEmpty() {
-        if (mEmptyView != null && getAdapter() != null) {
-            final boolean emptyViewVisible = getAdapter().getItemCount() == 0;
-            mEmptyView.setVisibility(emptyViewVisible ? VISIBLE : GONE);
-            setVisibility(emptyViewVisible ? GONE : VISIBLE);
+    /**
+     * Move to the state matching the adapter and the loading and error flags.
+     *
+     * The state views are only changed if the state actually changes. This view stays visible while
+     * the connected adapter has header views, so the headers are displayed in all states.
+     * @param notifying true - if called while the adapter dispatches a notification; false - otherwise
+     */
+    private void updateState(boolean notifying) {
+        if (mVisibilityTracker != null) {
+            mVisibilityTracker.scheduleEvaluation();
+        }
+        final Adapter adapter = getAdapter();
+        if (adapter == null) return;
+        final boolean hasContent = adapter instanceof AdvancedRecyclerAdapter
+                ? ((AdvancedRecyclerAdapter) adapter).getContentItemCount() > 0
+                : adapter.getItemCount() > 0;
+        final boolean hasHeaders = adapter instanceof AdvancedRecyclerAdapter
+                && ((AdvancedRecyclerAdapter) adapter).getHeaderCount() > 0;
+        final int state = hasContent ? STATE_CONTENT : mError ? STATE_ERROR : mLoading ? STATE_LOADING : STATE_EMPTY;
+        if (state != mState) {
+            final View oldView = mState >= 0 ? mStateViews[mState] : null;
+            mState = state;
+            final View view = obtainStateView(state);
+            if (oldView != null && oldView != view) {
+                hideView(oldView);
+            }
+            if (view != null) {
+                view.setVisibility(VISIBLE);
+            }
+
+            if (adapter instanceof BaseAdapter) {
+                // the empty view of the adapter is only shown in the empty state. The adapter must not be
+                // notified while it dispatches a notification, so the change is posted in that case
+                removeCallbacks(mEmptyViewUpdate);
+                if (notifying) {
+                    post(mEmptyViewUpdate);
+                } else {
+                    mEmptyViewUpdate.run();
+                }
+            }
+        }
+        // the header count may change without a state change
+        final boolean hidden = mStateViews[state] != null && !hasHeaders;
+        if (hidden != mHidden) {
+            mHidden = hidden;
+            if (hidden) {
+                hideView(this);
+            } else {
+                setVisibility(VISIBLE);
+            }
         }
     }
 
+    /**
+     * Hide this view or a state view. Within a FrameLayout or RelativeLayout the views overlap, so they are made
+     * INVISIBLE to switch between the states without a relayout of the parent. Within any other parent
+     * (e.g. a LinearLayout) they are made GONE, so the hidden view does not take the space of the displayed one.
+     */
+    private static void hideView(View view) {
+        final ViewParent parent = view.getParent();
+        final boolean overlapping = parent instanceof FrameLayout || parent instanceof RelativeLayout;
+        view.setVisibility(overlapping ? INVISIBLE : GONE);
+    }
+
+    /**
+     * Returns the view of the given state, creating it with its factory if needed.
+     * @return view or null if this state has no view or it cannot be added to the parent yet
+     */
+    private View obtainStateView(int state) {
+        if (mStateViews[state] == null && mStateViewFactories[state] != null && getParent() instanceof ViewGroup) {
+            final View view = mStateViewFactories[state].getView(getContext());
+            if (view.getParent() == null) {
+                final ViewGroup parent = (ViewGroup) getParent();
+                final ViewGroup.LayoutParams layoutParams = view.getLayoutParams() != null
+                        ? view.getLayoutParams() : copyLayoutParams(getLayoutParams());
+                parent.addView(view, parent.indexOfChild(this) + 1, layoutParams);
+            }
+            mStateViews[state] = view;
+        }
+        return mStateViews[state];
+    }
+
+    /**
+     * Copy the given layout parameters of this view for a state view placed at the same position.
+     *
+     * Note: ViewGroup.generateLayoutParams(...) is not accessible and drops the margins before KitKat,
+     *       so the parameters of the common parents are copied explicitly.
+     */
+    private static ViewGroup.LayoutParams copyLayoutParams(ViewGroup.LayoutParams source) {
+        if (source instanceof LinearLayout.LayoutParams) {
+            final LinearLayout.LayoutParams params = new LinearLayout.LayoutParams((MarginLayoutParams) source);
+            params.gravity = ((LinearLayout.LayoutParams) source).gravity;
+            params.weight = ((LinearLayout.LayoutParams) source).weight;
+            return params;
+        } else if (source instanceof FrameLayout.LayoutParams) {
+            final FrameLayout.LayoutParams params = new FrameLayout.LayoutParams((MarginLayoutParams) source);
+            params.gravity = ((FrameLayout.LayoutParams) source).gravity;
+            return params;
+        } else if (source instanceof RelativeLayout.LayoutParams) {
+            final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams((MarginLayoutParams) source);
+            final int[] rules = ((RelativeLayout.LayoutParams) source).getRules();
+            for (int verb = 0; verb < rules.length; verb++) {
+                if (rules[verb] != 0) {
+                    params.addRule(verb, rules[verb]);
+                }
+            }
+            params.alignWithParent = ((RelativeLayout.LayoutParams) source).alignWithParent;
+            return params;
+        } else if (source instanceof MarginLayoutParams) {
+            return new MarginLayoutParams((MarginLayoutParams) source);
+        }
+        return new ViewGroup.LayoutParams(source);
+    }
+
+    private void ensureScrollListener() {
+        if (mScrollListener != null) return;
+        mScrollListener = new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (mJankDetector != null) {
+                    mJankDetector.setScrolling(newState != SCROLL_STATE_IDLE);
+                }
+                if (newState == SCROLL_STATE_IDLE) {
+                    mScrollVelocity = 0;
+                    mLastScrolledTime = 0;
+                    setBindDeferred(false);
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (mDeferredBindingEnabled) {
+                    sampleScrollVelocity(dx, dy);
+                }
+                if (mVisibilityTracker != null) {
+                    mVisibilityTracker.scheduleEvaluation();
+                }
+            }
+        };
+        addOnScrollListener(mScrollListener);
+    }
+
+    private void applyMetrics(Adapter adapter, RecyclerMetrics metrics) {
+        if (adapter instanceof BaseAdapter) {
+            ((BaseAdapter) adapter).setMetrics(metrics);
+        }
+    }
+
+    private void applyMetrics(LayoutManager layoutManager, RecyclerMetrics metrics) {
+        if (layoutManager instanceof ch.temparus.android.advancedrecyclerview.LinearLayoutManager) {
+            ((ch.temparus.android.advancedrecyclerview.LinearLayoutManager) layoutManager).setMetrics(metrics);
+        } else if (layoutManager instanceof ch.temparus.android.advancedrecyclerview.GridLayoutManager) {
+            ((ch.temparus.android.advancedrecyclerview.GridLayoutManager) layoutManager).setMetrics(metrics);
+        } else if (layoutManager instanceof ch.temparus.android.advancedrecyclerview.StaggeredGridLayoutManager) {
+            ((ch.temparus.android.advancedrecyclerview.StaggeredGridLayoutManager) layoutManager).setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Returns the content size of layout managers with a uniform child size.
+     * @return content size without padding or -1 if the content size is unknown
+     */
+    private int getUniformContentSize(LayoutManager layoutManager) {
+        if (layoutManager instanceof ch.temparus.android.advancedrecyclerview.LinearLayoutManager) {
+            return ((ch.temparus.android.advancedrecyclerview.LinearLayoutManager) layoutManager).getUniformContentSize();
+        } else if (layoutManager instanceof ch.temparus.android.advancedrecyclerview.GridLayoutManager) {
+            return ((ch.temparus.android.advancedrecyclerview.GridLayoutManager) layoutManager).getUniformContentSize();
+        }
+        return -1;
+    }
+
     private void applyOverScrollMode() {
+        if (mMetrics == null) {
+            evaluateOverScrollMode();
+            return;
+        }
+        final long start = System.nanoTime();
+        evaluateOverScrollMode();
+        mMetrics.recordOverScroll(System.nanoTime() - start);
+    }
+
+    private void evaluateOverScrollMode() {
         switch (mOverScrollMode) {
             case OVER_SCROLL_IF_CONTENT_SCROLLS:
                 LayoutManager layoutManager = getLayoutManager();
                 if (layoutManager != null) {
                     boolean isScrollable;
-                    if (layoutManager instanceof GridLayoutManager) {
+                    final int uniformContentSize = getUniformContentSize(layoutManager);
+                    if (uniformContentSize >= 0) {
+                        isScrollable = layoutManager.canScrollVertically()
+                                ? uniformContentSize + layoutManager.getPaddingTop() + layoutManager.getPaddingBottom() > getHeight()
+                                : uniformContentSize + layoutManager.getPaddingLeft() + layoutManager.getPaddingRight() > getWidth();
+                    } else if (layoutManager instanceof GridLayoutManager) {
                         GridLayoutManager.SpanSizeLookup spanSizeLookup = ((GridLayoutManager) layoutManager).getSpanSizeLookup();
                         int spanCount = ((GridLayoutManager) layoutManager).getSpanCount();
                         int contentHeight = 0;
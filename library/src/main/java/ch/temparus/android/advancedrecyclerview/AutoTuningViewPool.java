@@ -0,0 +1,180 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.SparseArray;
+
+/**
+ * RecycledViewPool adjusting the number of ViewHolders kept per view type to the connected RecyclerView.
+ *
+ * The default pool keeps 5 ViewHolders per view type, which is not even a single row of a wide grid. This pool
+ * watches the reuse of every view type: whenever a ViewHolder has to be created while ViewHolders of the same
+ * type have been discarded before because the pool was full, the capacity of that type grows by the number of
+ * discarded ViewHolders. The capacity starts at two rows of the grid and grows up to the visible items plus
+ * one row. The total capacity of all types is limited by a budget of ViewHolders.
+ *
+ * Enable it with AdvancedRecyclerView.setRecycledViewPoolAutoTuningEnabled(true).
+ *
+ * @author Sandro Lutz
+ */
+public class AutoTuningViewPool extends RecyclerView.RecycledViewPool {
+
+    private static final int DEFAULT_MAX_SCRAP = 5;
+    private static final int DEFAULT_BUDGET = 64;
+
+    private final RecyclerView mRecyclerView;
+    private final SparseArray<TypeStats> mStats = new SparseArray<>();
+    private int mBudget = DEFAULT_BUDGET;
+    private int mTotalCapacity = 0;
+
+    /**
+     * @param recyclerView RecyclerView whose layout manager and visible items determine the capacities
+     */
+    public AutoTuningViewPool(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Set the maximum number of ViewHolders kept by this pool over all view types.
+     *
+     * Note: The budget only limits the growth of the capacities. Reduce it before ViewHolders are recycled
+     *       or call clear() to release memory immediately.
+     * @param maxViewHolders maximum number of pooled ViewHolders (default: 64)
+     */
+    @SuppressWarnings("unused")
+    public void setBudget(int maxViewHolders) {
+        mBudget = maxViewHolders;
+    }
+
+    /**
+     * Returns the current capacity of the given view type.
+     * @param viewType view type
+     * @return maximum number of pooled ViewHolders of this type or the default of 5 if the type has not been used yet
+     */
+    @SuppressWarnings("unused")
+    public int getCapacity(int viewType) {
+        final TypeStats stats = mStats.get(viewType);
+        return stats != null ? stats.capacity : DEFAULT_MAX_SCRAP;
+    }
+
+    /**
+     * Returns the number of ViewHolders of the given view type which have been reused from this pool.
+     * @param viewType view type
+     * @return number of reused ViewHolders
+     */
+    @SuppressWarnings("unused")
+    public long getReuseCount(int viewType) {
+        final TypeStats stats = mStats.get(viewType);
+        return stats != null ? stats.reused : 0;
+    }
+
+    /**
+     * Returns the number of requests for the given view type this pool could not serve, so a ViewHolder has been created.
+     * @param viewType view type
+     * @return number of created ViewHolders
+     */
+    @SuppressWarnings("unused")
+    public long getCreateCount(int viewType) {
+        final TypeStats stats = mStats.get(viewType);
+        return stats != null ? stats.created : 0;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        final RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        final TypeStats stats = getStats(viewType);
+        if (holder != null) {
+            stats.reused++;
+            stats.pooled = Math.max(0, stats.pooled - 1);
+        } else {
+            stats.created++;
+            if (stats.discarded > 0) {
+                grow(viewType, stats, stats.discarded);
+                stats.discarded = 0;
+            }
+        }
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        final TypeStats stats = getStats(scrap.getItemViewType());
+        if (stats.pooled < stats.capacity) {
+            stats.pooled++;
+        } else {
+            stats.discarded++;
+        }
+        super.putRecycledView(scrap);
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        final TypeStats stats = getStats(viewType);
+        mTotalCapacity += max - stats.capacity;
+        stats.capacity = max;
+        stats.pooled = Math.min(stats.pooled, max);
+        super.setMaxRecycledViews(viewType, max);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (int i = 0; i < mStats.size(); i++) {
+            mStats.valueAt(i).pooled = 0;
+        }
+    }
+
+    private TypeStats getStats(int viewType) {
+        TypeStats stats = mStats.get(viewType);
+        if (stats == null) {
+            stats = new TypeStats();
+            stats.capacity = DEFAULT_MAX_SCRAP;
+            mStats.put(viewType, stats);
+            mTotalCapacity += DEFAULT_MAX_SCRAP;
+            // start with two rows of the grid, the first layout has no children to bound it yet
+            final int grown = Math.min(2 * getSpanCount() - DEFAULT_MAX_SCRAP, mBudget - mTotalCapacity);
+            if (grown > 0) {
+                setMaxRecycledViews(viewType, DEFAULT_MAX_SCRAP + grown);
+            }
+        }
+        return stats;
+    }
+
+    private void grow(int viewType, TypeStats stats, int amount) {
+        final int capacity = Math.min(stats.capacity + amount, Math.max(stats.capacity, getUpperBound()));
+        final int available = mBudget - mTotalCapacity;
+        final int grown = Math.min(capacity - stats.capacity, available);
+        if (grown > 0) {
+            setMaxRecycledViews(viewType, stats.capacity + grown);
+        }
+    }
+
+    /**
+     * Returns the maximum useful capacity of a view type: all visible items plus one row.
+     */
+    private int getUpperBound() {
+        return Math.max(DEFAULT_MAX_SCRAP, mRecyclerView.getChildCount() + getSpanCount());
+    }
+
+    private int getSpanCount() {
+        final RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager instanceof android.support.v7.widget.GridLayoutManager) {
+            return ((android.support.v7.widget.GridLayoutManager) layoutManager).getSpanCount();
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+        return 1;
+    }
+
+    /**
+     * Reuse statistics of a view type.
+     */
+    private static class TypeStats {
+
+        private int capacity;
+        private int pooled;
+        private int discarded;
+        private long reused;
+        private long created;
+    }
+}
@@ -0,0 +1,50 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single background thread shared by the components of this library, e.g. for filtering and view inflation.
+ *
+ * The thread is created on first use, runs with background priority and does not keep the process alive.
+ *
+ * @author Sandro Lutz
+ */
+final class BackgroundExecutor {
+
+    private static ExecutorService sExecutor;
+
+    private BackgroundExecutor() {
+    }
+
+    /**
+     * Run the given task on the background thread after all previously submitted tasks.
+     * @param task task to be run
+     */
+    static void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "AdvancedRecyclerView");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+}
@@ -2,6 +2,7 @@ package ch.temparus.android.advancedrecyclerview;
 
 import android.content.Context;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.SparseBooleanArray;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,16 +13,33 @@ import java.util.List;
 
 public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHolder>
         extends RecyclerView.Adapter<BaseAdapter.ViewHolder>
-        implements AdvancedRecyclerAdapter<ContentViewHolder>, SelectionRecyclerAdapter {
+        implements AdvancedRecyclerAdapter<ContentViewHolder>, RangeSelectionRecyclerAdapter {
 
     protected int HEADER_VIEW = 0;
     protected int EMPTY_VIEW = 1;
     protected int CONTENT_VIEW = 2;
 
+    /**
+     * Payload of the notifications requesting the full bind of items bound with onBindContentPlaceholder(...)
+     * Items which are fully bound already are skipped.
+     */
+    public static final Object PAYLOAD_FULL_BIND = new Object();
+
     private Context mContext;
-    private List<View> mHeaderList;
-    private View mEmptyView;
+    private List<ViewFactory> mHeaderList;
+    private ViewFactory mEmptyView;
     private SparseBooleanArray mSelectedItems;
+    private List<OnSelectionChangedListener> mSelectionListeners;
+    private SparseBooleanArray mPendingSelectionChanges;
+    private FrameTask mSelectionDispatcher;
+    private int mDispatchedSelectedCount;
+    private RecyclerMetrics mMetrics;
+    private JankDetector mJankDetector;
+    private int mDragFromPosition = -1;
+    private int mDragToPosition = -1;
+    private boolean mBindDeferred = false;
+    private boolean mBindMemoizationEnabled = false;
+    private boolean mEmptyViewEnabled = true;
 
     public BaseAdapter(Context context) {
         mContext = context;
@@ -45,6 +63,49 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      */
     public abstract void onBindContentViewHolder(ContentViewHolder holder, int position, boolean selected);
 
+    /**
+     * Called instead of onBindContentViewHolder(...) while the AdvancedRecyclerView is scrolled faster than
+     * its deferred binding velocity. The item is bound again with onBindContentViewHolder(...) once the
+     * scrolling settles, if it is still visible.
+     *
+     * Note: You should override this method with a cheap bind (e.g. text only, no images), if the full bind
+     *       of your content items is expensive. By default it performs the full bind.
+     * @param holder The ViewHolder which should be updated to represent the item at the given position.
+     * @param position The position of the item within the adapter's content data set.
+     * @param selected true - if the item is selected; false - otherwise
+     */
+    public void onBindContentPlaceholder(ContentViewHolder holder, int position, boolean selected) {
+        onBindContentViewHolder(holder, position, selected);
+    }
+
+    /**
+     * Returns the version of the given content item used by the bind memoization.
+     *
+     * Note: You should override this method, if you enable the bind memoization and change content items
+     *       in place instead of replacing them. The version has to change whenever the displayed data changes.
+     * @param position position in content list
+     * @return version of the item (default: 0)
+     */
+    public long getContentItemVersion(int position) {
+        return 0;
+    }
+
+    /**
+     * Enable or disable the bind memoization.
+     *
+     * If enabled, every ViewHolder remembers the content item (identity), its version and the selection state
+     * it has been bound to. Binding the same item in the same state again is skipped, so notifyDataSetChanged(),
+     * header changes and the binds of measure passes only bind the items which actually changed.
+     *
+     * Note: Changes of an item in place have to be reflected by getContentItemVersion(int),
+     *       otherwise the item is not bound again.
+     * @param enabled true - if redundant binds should be skipped; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public void setBindMemoizationEnabled(boolean enabled) {
+        mBindMemoizationEnabled = enabled;
+    }
+
     /**
      * Returns the total number of content items in the data set hold by the adapter.
      * @return The total number of content items in this adapter.
@@ -67,6 +128,50 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      */
     public abstract Object getContentItem(int position);
 
+    /**
+     * Check if the content item at the given position can be moved by drag and drop.
+     *
+     * Note: You have to override this method and onContentItemMoved(int, int) to enable drag and drop.
+     * @param position content item position
+     * @return true - if content item is movable; false - otherwise
+     */
+    public boolean isContentMovable(int position) {
+        return false;
+    }
+
+    /**
+     * Check if the content item at the given position can be dismissed by swiping.
+     *
+     * Note: You have to override this method and onContentItemSwiped(int, int) to enable swipe to dismiss.
+     * @param position content item position
+     * @return true - if content item is swipeable; false - otherwise
+     */
+    public boolean isContentSwipeable(int position) {
+        return false;
+    }
+
+    /**
+     * Called once a content item has been dropped at a new position.
+     *
+     * While the item is dragged, the view is updated without changing the data set. On drop, this method
+     * is called once for the whole drag and should move the item within the data set.
+     * The view and the selection are already up to date, so no notification is needed.
+     * @param fromPosition position in content list before the drag
+     * @param toPosition position in content list after the drop
+     */
+    public void onContentItemMoved(int fromPosition, int toPosition) {
+    }
+
+    /**
+     * Called when a content item has been swiped out of the view.
+     *
+     * Note: You have to remove the item from the data set and call notifyContentItemRemoved(int).
+     * @param position content item position
+     * @param direction swipe direction (see ItemTouchHelper)
+     */
+    public void onContentItemSwiped(int position, int direction) {
+    }
+
     /**
      * Set empty view. This view will be displayed whenever the adapter does not contain any content items.
      *
@@ -75,7 +180,16 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      */
     @SuppressWarnings("unused")
     public void setEmptyView(View view) {
-        mEmptyView = view;
+        mEmptyView = view != null ? ViewFactory.of(view) : null;
+    }
+
+    /**
+     * Set a factory creating the empty view once the adapter does not contain any content items for the first time.
+     * @param factory empty view factory
+     */
+    @SuppressWarnings("unused")
+    public void setEmptyView(ViewFactory factory) {
+        mEmptyView = factory;
     }
 
     /**
@@ -83,6 +197,14 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      * @param header view to be added
      */
     public final void addHeader(View header) {
+        addHeader(ViewFactory.of(header));
+    }
+
+    /**
+     * Add a header view created by the given factory once it is bound for the first time at the end of the header views
+     * @param header factory of the view to be added
+     */
+    public final void addHeader(ViewFactory header) {
         mHeaderList.add(header);
         notifyDataSetChanged();
     }
@@ -93,6 +215,15 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      * @param header view to be added
      */
     public final void addHeader(int position, View header) {
+        addHeader(position, ViewFactory.of(header));
+    }
+
+    /**
+     * Add a header view created by the given factory once it is bound for the first time at the give position
+     * @param position position to add the new header view
+     * @param header factory of the view to be added
+     */
+    public final void addHeader(int position, ViewFactory header) {
         if (position < mHeaderList.size()) {
             mHeaderList.add(position, header);
             notifyDataSetChanged();
@@ -107,6 +238,20 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      * @param header the view to be removed
      */
     public final void removeHeader(View header) {
+        for (int i = 0; i < mHeaderList.size(); i++) {
+            if (mHeaderList.get(i).peekView() == header) {
+                removeHeader(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the header view created by the given factory.
+     * @param header factory of the view to be removed
+     */
+    @SuppressWarnings("unused")
+    public final void removeHeader(ViewFactory header) {
         mHeaderList.remove(header);
         notifyDataSetChanged();
     }
@@ -130,31 +275,176 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
 
     @Override
     public final ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final boolean traced = TraceSection.begin(TraceSection.CREATE_VIEW_HOLDER);
+        try {
+            if (mMetrics == null && mJankDetector == null) {
+                return createHolder(parent, viewType);
+            }
+            final long start = System.nanoTime();
+            ViewHolder holder = createHolder(parent, viewType);
+            final long duration = System.nanoTime() - start;
+            if (mMetrics != null) {
+                mMetrics.recordCreate(viewType, duration);
+            }
+            if (mJankDetector != null) {
+                mJankDetector.recordCreate(viewType, duration);
+            }
+            return holder;
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    private ViewHolder createHolder(ViewGroup parent, int viewType) {
         if (viewType == HEADER_VIEW) {
             ViewGroup.LayoutParams layoutParams = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
             FrameLayout frameLayout = new FrameLayout(mContext);
             frameLayout.setLayoutParams(layoutParams);
+            applyFullSpan(parent, frameLayout);
             return new HeaderViewHolder(frameLayout);
         } else if (viewType == EMPTY_VIEW) {
-            return new EmptyViewHolder(mEmptyView);
+            final View emptyView = mEmptyView.getView(mContext);
+            applyFullSpan(parent, emptyView);
+            return new EmptyViewHolder(emptyView);
         }
         return onCreateContentViewHolder(parent, viewType);
     }
 
+    /**
+     * Let the given header or empty view span all columns if the parent uses a StaggeredGridLayoutManager.
+     * @param parent parent passed to onCreateViewHolder(...)
+     * @param view header or empty view
+     */
+    private static void applyFullSpan(ViewGroup parent, View view) {
+        if (!(parent instanceof RecyclerView)
+                || !(((RecyclerView) parent).getLayoutManager() instanceof StaggeredGridLayoutManager)) {
+            return;
+        }
+        final ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+        final StaggeredGridLayoutManager.LayoutParams spanParams;
+        if (layoutParams instanceof StaggeredGridLayoutManager.LayoutParams) {
+            spanParams = (StaggeredGridLayoutManager.LayoutParams) layoutParams;
+        } else if (layoutParams instanceof ViewGroup.MarginLayoutParams) {
+            spanParams = new StaggeredGridLayoutManager.LayoutParams((ViewGroup.MarginLayoutParams) layoutParams);
+        } else if (layoutParams != null) {
+            spanParams = new StaggeredGridLayoutManager.LayoutParams(layoutParams);
+        } else {
+            spanParams = new StaggeredGridLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        }
+        spanParams.setFullSpan(true);
+        view.setLayoutParams(spanParams);
+    }
+
+    /**
+     * Note: Override onBindContentPayloads(...) for partial binds of content items instead of this method.
+     *       Call through to super.onBindViewHolder(...) when overriding this method.
+     */
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty() || holder.mPlaceholderBound || holder instanceof HeaderViewHolder) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        final List<Object> appPayloads = withoutFullBindPayloads(payloads);
+        if (appPayloads.isEmpty()) {
+            // the item has been fully bound already
+            return;
+        }
+        final int realPosition = getRealPosition(position);
+        if (realPosition < 0 || getContentItemCount() == 0
+                || !onBindContentPayloads((ContentViewHolder) holder, realPosition,
+                        mSelectedItems.get(realPosition, false), appPayloads)) {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Called by onBindViewHolder(...) if a fully bound content item has been notified with payloads,
+     * e.g. with notifyContentItemChanged(position, payload), to update only the changed parts of the item.
+     *
+     * Note: Override this method for partial binds. By default the item is fully bound again
+     *       with onBindContentViewHolder(...).
+     * @param holder The ViewHolder which should be updated.
+     * @param position The position of the item within the adapter's content data set.
+     * @param selected true - if the item is selected; false - otherwise
+     * @param payloads payloads of the notifications, never empty and without BaseAdapter.PAYLOAD_FULL_BIND
+     * @return true - if the payloads have been applied; false - to bind the item fully
+     */
+    public boolean onBindContentPayloads(ContentViewHolder holder, int position, boolean selected, List<Object> payloads) {
+        return false;
+    }
+
+    private static List<Object> withoutFullBindPayloads(List<Object> payloads) {
+        List<Object> result = payloads;
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) == PAYLOAD_FULL_BIND) {
+                if (result == payloads) {
+                    result = new ArrayList<>(payloads.subList(0, i));
+                }
+            } else if (result != payloads) {
+                result.add(payloads.get(i));
+            }
+        }
+        return result;
+    }
+
     @Override
     public final void onBindViewHolder(ViewHolder holder, int position) {
+        final boolean traced = TraceSection.begin(TraceSection.BIND_VIEW_HOLDER);
+        try {
+            if (mMetrics == null && mJankDetector == null) {
+                bindHolder(holder, position);
+                return;
+            }
+            final long start = System.nanoTime();
+            bindHolder(holder, position);
+            final long duration = System.nanoTime() - start;
+            if (mMetrics != null) {
+                mMetrics.recordBind(holder.getItemViewType(), duration);
+            }
+            if (mJankDetector != null) {
+                mJankDetector.recordBind(holder.getItemViewType(), position, duration);
+            }
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    private void bindHolder(ViewHolder holder, int position) {
         int realPosition = getRealPosition(position);
         if (realPosition < 0) {
             if (holder instanceof HeaderViewHolder) {
                 HeaderViewHolder headerHolder = (HeaderViewHolder) holder;
-                headerHolder.setHeaderView(mHeaderList.get(position));
+                headerHolder.setHeaderView(mHeaderList.get(position).getView(mContext));
             } else {
                 throw new ClassCastException("ViewHolder may be of type BaseGridAdapter.HeaderViewHolder");
             }
         } else {
             if (getContentItemCount() > 0) {
                 if (!(holder instanceof HeaderViewHolder)) {
-                    onBindContentViewHolder((ContentViewHolder) holder, realPosition, mSelectedItems.get(realPosition, false));
+                    final boolean selected = mSelectedItems.get(realPosition, false);
+                    if (mBindDeferred) {
+                        holder.mPlaceholderBound = true;
+                        holder.mBoundItem = null;
+                        onBindContentPlaceholder((ContentViewHolder) holder, realPosition, selected);
+                    } else if (mBindMemoizationEnabled) {
+                        final Object item = getContentItem(realPosition);
+                        final long version = getContentItemVersion(realPosition);
+                        if (!holder.mPlaceholderBound && item != null && holder.mBoundItem == item
+                                && holder.mBoundVersion == version && holder.mBoundSelected == selected) {
+                            // the holder already displays this item in this state
+                            return;
+                        }
+                        holder.mPlaceholderBound = false;
+                        onBindContentViewHolder((ContentViewHolder) holder, realPosition, selected);
+                        holder.mBoundItem = item;
+                        holder.mBoundVersion = version;
+                        holder.mBoundSelected = selected;
+                    } else {
+                        holder.mPlaceholderBound = false;
+                        holder.mBoundItem = null;
+                        onBindContentViewHolder((ContentViewHolder) holder, realPosition, selected);
+                    }
                 } else {
                     throw new ClassCastException("ViewHolder may be of generic type ContentViewHolder");
                 }
@@ -162,6 +452,16 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
         }
     }
 
+    /**
+     * Note: Call through to super.onViewRecycled(...) when overriding this method.
+     */
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        // the view may be cleared when it is recycled, so it has to be bound again
+        holder.mBoundItem = null;
+        super.onViewRecycled(holder);
+    }
+
     @Override
     public final int getItemViewType(int position) {
         int realPosition = getRealPosition(position);
@@ -183,7 +483,7 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
     @Override
     public final int getItemCount() {
         int contentItemCount = getContentItemCount();
-        return mHeaderList.size() + ((contentItemCount == 0 && mEmptyView != null) ? 1 : contentItemCount);
+        return mHeaderList.size() + ((contentItemCount == 0 && hasEmptyView()) ? 1 : contentItemCount);
     }
 
     /**
@@ -209,19 +509,61 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
 
             if (!isSelectable(position)) return;
 
-            if (mSelectedItems.get(realPosition, false)) {
-                mSelectedItems.delete(realPosition);
-            } else {
-                mSelectedItems.put(realPosition, true);
-            }
+            setItemSelected(realPosition, !mSelectedItems.get(realPosition, false));
             notifyItemChanged(position);
         }
     }
 
+    /**
+     * Check if the item at the given position is selected.
+     * @param position item position (header views included!)
+     * @return true - if item is selected; false - otherwise
+     */
+    public boolean isSelected(int position) {
+        int realPosition = getRealPosition(position);
+        return realPosition >= 0 && mSelectedItems.get(realPosition, false);
+    }
+
+    /**
+     * Select or deselect all selectable items within the given range (header views included!)
+     *
+     * Only the items whose selection state actually changes are updated in the view.
+     * @param positionStart position of the first item
+     * @param itemCount number of items
+     * @param selected true - if the items should be selected; false - if they should be deselected
+     */
+    public void setRangeSelected(int positionStart, int itemCount, boolean selected) {
+        final int start = Math.max(positionStart, 0);
+        final int end = Math.min(positionStart + itemCount, getItemCount());
+        int changedStart = -1;
+        for (int position = start; position < end; position++) {
+            boolean changed = false;
+            if (isSelectable(position)) {
+                int realPosition = getRealPosition(position);
+                if (mSelectedItems.get(realPosition, false) != selected) {
+                    setItemSelected(realPosition, selected);
+                    changed = true;
+                }
+            }
+            if (changed && changedStart < 0) {
+                changedStart = position;
+            } else if (!changed && changedStart >= 0) {
+                notifyItemRangeChanged(changedStart, position - changedStart);
+                changedStart = -1;
+            }
+        }
+        if (changedStart >= 0) {
+            notifyItemRangeChanged(changedStart, end - changedStart);
+        }
+    }
+
     /**
      * Clear the current selection.
      */
     public void clearSelection() {
+        for (int i = 0; i < mSelectedItems.size(); i++) {
+            recordSelectionChange(mSelectedItems.keyAt(i), true);
+        }
         mSelectedItems.clear();
         notifyDataSetChanged();
     }
@@ -246,22 +588,384 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
         return items;
     }
 
+    /**
+     * Get a compact, parcelable snapshot of the current selection.
+     * @return current selection state
+     */
+    public SelectionState getSelectionState() {
+        return SelectionState.encode(mSelectedItems);
+    }
+
+    /**
+     * Replace the current selection with the given snapshot.
+     * @param state selection state previously returned by getSelectionState()
+     */
+    public void setSelectionState(SelectionState state) {
+        SparseBooleanArray selectedItems = state.decode();
+        if (mSelectionListeners != null) {
+            for (int i = 0; i < mSelectedItems.size(); i++) {
+                recordSelectionChange(mSelectedItems.keyAt(i), true);
+            }
+            for (int i = 0; i < selectedItems.size(); i++) {
+                recordSelectionChange(selectedItems.keyAt(i), false);
+            }
+        }
+        mSelectedItems = selectedItems;
+        notifyContentItemRangeChanged(0, getContentItemCount());
+    }
+
+    /**
+     * Register a listener which is notified about selection changes.
+     *
+     * All changes within a frame are delivered with a single call of the listener.
+     * @param listener listener to be added
+     */
+    public void addOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        if (mSelectionListeners == null) {
+            mSelectionListeners = new ArrayList<>();
+            mPendingSelectionChanges = new SparseBooleanArray();
+            mSelectionDispatcher = new FrameTask() {
+                @Override
+                void onFrame() {
+                    dispatchSelectionChange();
+                }
+            };
+            mDispatchedSelectedCount = mSelectedItems.size();
+        }
+        mSelectionListeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener previously added with addOnSelectionChangedListener(...).
+     * @param listener listener to be removed
+     */
+    public void removeOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        if (mSelectionListeners != null) {
+            mSelectionListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Notify the view that an item has been inserted into the content list.
+     * @param position position in content list (header views not included)
+     */
+    @SuppressWarnings("unused")
+    public void notifyContentItemInserted(int position) {
+        notifyContentItemRangeInserted(position, 1);
+    }
+
+    /**
+     * Notify the view that items have been inserted into the content list.
+     *
+     * Note: Selected items behind the inserted range are moved along with their items.
+     * @param positionStart position of the first inserted item in content list (header views not included)
+     * @param itemCount number of inserted items
+     */
+    public void notifyContentItemRangeInserted(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        offsetSelectionForInsert(positionStart, itemCount);
+        int headerCount = mHeaderList.size();
+        if (hasEmptyView() && getContentItemCount() == itemCount) {
+            // the empty view is replaced by the first content items
+            notifyItemRemoved(headerCount);
+        }
+        notifyItemRangeInserted(positionStart + headerCount, itemCount);
+    }
+
     /**
      * Notify the view that an item has been removed from the content list.
      * @param position position in content list (header views not included)
      */
     @SuppressWarnings("unused")
     public void notifyContentItemRemoved(int position) {
-        notifyItemRemoved(position + mHeaderList.size());
+        notifyContentItemRangeRemoved(position, 1);
+    }
+
+    /**
+     * Notify the view that items have been removed from the content list.
+     *
+     * Note: The selection of the removed items is dropped and selected items behind the removed
+     *       range are moved along with their items.
+     * @param positionStart position of the first removed item in content list (header views not included)
+     * @param itemCount number of removed items
+     */
+    public void notifyContentItemRangeRemoved(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        offsetSelectionForRemove(positionStart, itemCount);
+        int headerCount = mHeaderList.size();
+        notifyItemRangeRemoved(positionStart + headerCount, itemCount);
+        if (hasEmptyView() && getContentItemCount() == 0) {
+            // the last content items are replaced by the empty view
+            notifyItemInserted(headerCount);
+        }
+    }
+
+    /**
+     * Notify the view that an item of the content list has changed.
+     * @param position position in content list (header views not included)
+     */
+    @SuppressWarnings("unused")
+    public void notifyContentItemChanged(int position) {
+        notifyItemChanged(position + mHeaderList.size());
+    }
+
+    /**
+     * Notify the view that an item of the content list has changed. The payload is passed to
+     * onBindContentPayloads(...) for a partial bind.
+     * @param position position in content list (header views not included)
+     * @param payload payload describing the change
+     */
+    @SuppressWarnings("unused")
+    public void notifyContentItemChanged(int position, Object payload) {
+        notifyItemChanged(position + mHeaderList.size(), payload);
+    }
+
+    /**
+     * Notify the view that items of the content list have changed.
+     * @param positionStart position of the first changed item in content list (header views not included)
+     * @param itemCount number of changed items
+     */
+    public void notifyContentItemRangeChanged(int positionStart, int itemCount) {
+        if (itemCount <= 0) return;
+        notifyItemRangeChanged(positionStart + mHeaderList.size(), itemCount);
+    }
+
+    /**
+     * Notify the view that an item of the content list has been moved.
+     *
+     * Note: The selection is moved along with the item.
+     * @param fromPosition previous position in content list (header views not included)
+     * @param toPosition new position in content list (header views not included)
+     */
+    public void notifyContentItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) return;
+        offsetSelectionForMove(fromPosition, toPosition);
+        notifyItemMoved(fromPosition + mHeaderList.size(), toPosition + mHeaderList.size());
+    }
+
+    /**
+     * Move the selection of all items at or behind the given content position by itemCount positions.
+     * @param positionStart position of the first inserted item in content list
+     * @param itemCount number of inserted items
+     */
+    protected void offsetSelectionForInsert(int positionStart, int itemCount) {
+        mSelectedItems = offsetKeysForInsert(mSelectedItems, positionStart, itemCount);
+        if (mSelectionListeners != null) {
+            mPendingSelectionChanges = offsetKeysForInsert(mPendingSelectionChanges, positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Drop the selection of the removed items and move the selection of all items behind them.
+     * @param positionStart position of the first removed item in content list
+     * @param itemCount number of removed items
+     */
+    protected void offsetSelectionForRemove(int positionStart, int itemCount) {
+        final int selectedCount = mSelectedItems.size();
+        mSelectedItems = offsetKeysForRemove(mSelectedItems, positionStart, itemCount);
+        if (mSelectionListeners != null) {
+            mPendingSelectionChanges = offsetKeysForRemove(mPendingSelectionChanges, positionStart, itemCount);
+            if (selectedCount != mSelectedItems.size()) {
+                // the selected item count has changed
+                mSelectionDispatcher.schedule();
+            }
+        }
+    }
+
+    /**
+     * Move the selection of a single item and of all items in between.
+     * @param fromPosition previous position in content list
+     * @param toPosition new position in content list
+     */
+    protected void offsetSelectionForMove(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) return;
+        mSelectedItems = offsetKeysForMove(mSelectedItems, fromPosition, toPosition);
+        if (mSelectionListeners != null) {
+            mPendingSelectionChanges = offsetKeysForMove(mPendingSelectionChanges, fromPosition, toPosition);
+        }
+    }
+
+    private static SparseBooleanArray offsetKeysForInsert(SparseBooleanArray array, int positionStart, int itemCount) {
+        if (array.size() == 0 || array.keyAt(array.size() - 1) < positionStart) return array;
+        SparseBooleanArray result = new SparseBooleanArray(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            int key = array.keyAt(i);
+            result.append(key < positionStart ? key : key + itemCount, array.valueAt(i));
+        }
+        return result;
+    }
+
+    private static SparseBooleanArray offsetKeysForRemove(SparseBooleanArray array, int positionStart, int itemCount) {
+        if (array.size() == 0 || array.keyAt(array.size() - 1) < positionStart) return array;
+        SparseBooleanArray result = new SparseBooleanArray(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            int key = array.keyAt(i);
+            if (key < positionStart) {
+                result.append(key, array.valueAt(i));
+            } else if (key >= positionStart + itemCount) {
+                result.append(key - itemCount, array.valueAt(i));
+            }
+        }
+        return result;
+    }
+
+    private static SparseBooleanArray offsetKeysForMove(SparseBooleanArray array, int fromPosition, int toPosition) {
+        if (array.size() == 0) return array;
+        final int index = array.indexOfKey(fromPosition);
+        final boolean value = index >= 0 && array.valueAt(index);
+        SparseBooleanArray result = offsetKeysForInsert(offsetKeysForRemove(array, fromPosition, 1), toPosition, 1);
+        if (index >= 0) {
+            result.put(toPosition, value);
+        }
+        return result;
+    }
+
+    private void setItemSelected(int realPosition, boolean selected) {
+        recordSelectionChange(realPosition, !selected);
+        if (selected) {
+            mSelectedItems.put(realPosition, true);
+        } else {
+            mSelectedItems.delete(realPosition);
+        }
+    }
+
+    /**
+     * Remember the selection state of an item before its first change within the current frame.
+     * @param realPosition position in content list
+     * @param wasSelected selection state before the change
+     */
+    private void recordSelectionChange(int realPosition, boolean wasSelected) {
+        if (mSelectionListeners == null) return;
+        if (mPendingSelectionChanges.indexOfKey(realPosition) < 0) {
+            mPendingSelectionChanges.put(realPosition, wasSelected);
+        }
+        mSelectionDispatcher.schedule();
+    }
+
+    private void dispatchSelectionChange() {
+        SelectionChange.Builder added = new SelectionChange.Builder();
+        SelectionChange.Builder removed = new SelectionChange.Builder();
+        for (int i = 0; i < mPendingSelectionChanges.size(); i++) {
+            int key = mPendingSelectionChanges.keyAt(i);
+            boolean selected = mSelectedItems.get(key, false);
+            if (selected != mPendingSelectionChanges.valueAt(i)) {
+                (selected ? added : removed).add(key);
+            }
+        }
+        mPendingSelectionChanges.clear();
+
+        final int selectedCount = mSelectedItems.size();
+        if (added.getCount() == 0 && removed.getCount() == 0 && selectedCount == mDispatchedSelectedCount) return;
+        mDispatchedSelectedCount = selectedCount;
+
+        SelectionChange change = new SelectionChange(added.getRanges(), added.getCount(), removed.getRanges(), removed.getCount(), selectedCount);
+        for (OnSelectionChangedListener listener : new ArrayList<>(mSelectionListeners)) {
+            listener.onSelectionChanged(this, change);
+        }
     }
 
     /**
      * Get real position in content list
+     *
+     * Note: While a content item is dragged, the returned position is the item's position in the data set.
      * @param position position in this Adapter, including header views
      * @return position in content list
      */
     protected int getRealPosition(int position) {
-        return position - mHeaderList.size();
+        int realPosition = position - mHeaderList.size();
+        if (mDragFromPosition < 0 || realPosition < 0) {
+            return realPosition;
+        }
+        if (realPosition == mDragToPosition) {
+            return mDragFromPosition;
+        } else if (mDragFromPosition < mDragToPosition && realPosition >= mDragFromPosition && realPosition < mDragToPosition) {
+            return realPosition + 1;
+        } else if (mDragFromPosition > mDragToPosition && realPosition <= mDragFromPosition && realPosition > mDragToPosition) {
+            return realPosition - 1;
+        }
+        return realPosition;
+    }
+
+    /**
+     * Set the metrics recording the create and bind durations of this adapter.
+     * @param metrics metrics or null to disable recording
+     */
+    void setMetrics(RecyclerMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Set the jank detector recording the create and bind events of this adapter.
+     * @param jankDetector jank detector or null to disable recording
+     */
+    void setJankDetector(JankDetector jankDetector) {
+        mJankDetector = jankDetector;
+    }
+
+    /**
+     * Bind content items with onBindContentPlaceholder(...) instead of onBindContentViewHolder(...)
+     * @param deferred true - while the view is scrolled fast; false - otherwise
+     */
+    void setBindDeferred(boolean deferred) {
+        mBindDeferred = deferred;
+    }
+
+    /**
+     * Show or hide the empty view, e.g. while an AdvancedRecyclerView displays its loading or error view instead.
+     * @param enabled true - if the empty view should be shown while there are no content items; false - otherwise
+     */
+    void setEmptyViewEnabled(boolean enabled) {
+        if (mEmptyViewEnabled == enabled) return;
+        final boolean shown = hasEmptyView() && getContentItemCount() == 0;
+        mEmptyViewEnabled = enabled;
+        if (shown != (hasEmptyView() && getContentItemCount() == 0)) {
+            if (shown) {
+                notifyItemRemoved(mHeaderList.size());
+            } else {
+                notifyItemInserted(mHeaderList.size());
+            }
+        }
+    }
+
+    private boolean hasEmptyView() {
+        return mEmptyView != null && mEmptyViewEnabled;
+    }
+
+    /**
+     * Check if the given ViewHolder has been bound with onBindContentPlaceholder(...)
+     * @param holder ViewHolder of this adapter
+     * @return true - if the ViewHolder still needs its full bind; false - otherwise
+     */
+    static boolean isPlaceholderBound(RecyclerView.ViewHolder holder) {
+        return holder instanceof ViewHolder && ((ViewHolder) holder).mPlaceholderBound;
+    }
+
+    /**
+     * Move the dragged content item to a new position in the view without touching the data set.
+     * @param fromPosition current position of the dragged item in this Adapter, including header views
+     * @param toPosition new position of the dragged item in this Adapter, including header views
+     */
+    void moveDraggedItem(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) return;
+        if (mDragFromPosition < 0) {
+            mDragFromPosition = fromPosition - mHeaderList.size();
+        }
+        mDragToPosition = toPosition - mHeaderList.size();
+        notifyItemMoved(fromPosition, toPosition);
+    }
+
+    /**
+     * Apply the move of the dragged content item to the selection and the data set.
+     */
+    void commitDraggedItem() {
+        final int fromPosition = mDragFromPosition;
+        final int toPosition = mDragToPosition;
+        mDragFromPosition = -1;
+        mDragToPosition = -1;
+        if (fromPosition >= 0 && fromPosition != toPosition) {
+            offsetSelectionForMove(fromPosition, toPosition);
+            onContentItemMoved(fromPosition, toPosition);
+        }
     }
 
     /**
@@ -269,6 +973,11 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
      */
     public static class ViewHolder extends RecyclerView.ViewHolder {
 
+        private boolean mPlaceholderBound = false;
+        private Object mBoundItem;
+        private long mBoundVersion;
+        private boolean mBoundSelected;
+
         public ViewHolder(View itemView) {
             super(itemView);
         }
@@ -294,10 +1003,21 @@ public abstract class BaseAdapter<ContentViewHolder extends BaseAdapter.ViewHold
         }
 
         public void setHeaderView(View view) {
-            if (view.getParent() != null) {
-                ((ViewGroup) view.getParent()).removeView(view);
+            final boolean traced = TraceSection.begin(TraceSection.SET_HEADER_VIEW);
+            try {
+                final ViewGroup container = (ViewGroup) itemView;
+                if (view.getParent() == container && container.getChildCount() == 1) {
+                    // the header is already displayed by this holder
+                    return;
+                }
+                container.removeAllViews();
+                if (view.getParent() != null) {
+                    ((ViewGroup) view.getParent()).removeView(view);
+                }
+                container.addView(view);
+            } finally {
+                TraceSection.end(traced);
             }
-            ((ViewGroup) itemView).addView(view);
         }
     }
 }
\ No newline at end of file
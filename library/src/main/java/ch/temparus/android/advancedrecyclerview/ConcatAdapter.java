@@ -0,0 +1,384 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter displaying several adapters (e.g. BaseAdapters with their own header views) one after another.
+ *
+ * Every adapter keeps its own view type namespace: the view types of the adapters are mapped to view types of
+ * this adapter, so two adapters may use the same view type for different views. A position is routed to its
+ * adapter with a binary search over the cached start positions of the adapters. The notifications of an
+ * adapter are forwarded with its start position as offset, so a change within one adapter only updates its range.
+ *
+ * Header views and the empty view of an {@link AdvancedRecyclerAdapter} span all columns of the grid layout managers.
+ *
+ * Stable ids are forwarded from the adapters. Call setHasStableIds(true) only if all adapters have stable ids
+ * which are unique across the adapters.
+ *
+ * Note: The ViewHolders report positions of this adapter (e.g. getAdapterPosition()), not of their own adapter.
+ *
+ * @author Sandro Lutz
+ */
+public class ConcatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private final List<Entry> mEntries = new ArrayList<>();
+    // start position of every adapter, followed by the total item count
+    private int[] mOffsets = new int[] { 0 };
+    // view type of this adapter -> index into mTypeOwners / mLocalTypes
+    private final List<Entry> mTypeOwners = new ArrayList<>();
+    private final List<Integer> mLocalTypes = new ArrayList<>();
+    private final List<RecyclerView> mRecyclerViews = new ArrayList<>();
+
+    public ConcatAdapter() {
+    }
+
+    /**
+     * @param adapters adapters to be displayed in the given order
+     */
+    @SuppressWarnings("unused")
+    public ConcatAdapter(RecyclerView.Adapter... adapters) {
+        for (RecyclerView.Adapter adapter : adapters) {
+            addAdapter(adapter);
+        }
+    }
+
+    /**
+     * Add an adapter behind all other adapters.
+     * @param adapter adapter to be added
+     */
+    public void addAdapter(RecyclerView.Adapter adapter) {
+        addAdapter(mEntries.size(), adapter);
+    }
+
+    /**
+     * Add an adapter at the given index.
+     * @param index index within the adapters of this adapter
+     * @param adapter adapter to be added
+     */
+    @SuppressWarnings("unchecked")
+    public void addAdapter(int index, RecyclerView.Adapter adapter) {
+        if (hasStableIds() && !adapter.hasStableIds()) {
+            throw new IllegalArgumentException("Adapters of a ConcatAdapter with stable ids must have stable ids");
+        }
+        final Entry entry = new Entry(adapter);
+        mEntries.add(index, entry);
+        entry.count = adapter.getItemCount();
+        adapter.registerAdapterDataObserver(entry.observer);
+        for (RecyclerView recyclerView : mRecyclerViews) {
+            adapter.onAttachedToRecyclerView(recyclerView);
+        }
+        updateOffsets(index);
+        notifyItemRangeInserted(mOffsets[index], entry.count);
+    }
+
+    /**
+     * Remove the given adapter.
+     * @param adapter adapter to be removed
+     */
+    @SuppressWarnings({"unused", "unchecked"})
+    public void removeAdapter(RecyclerView.Adapter adapter) {
+        final int index = indexOf(adapter);
+        if (index < 0) return;
+        final Entry entry = mEntries.remove(index);
+        adapter.unregisterAdapterDataObserver(entry.observer);
+        final int start = mOffsets[index];
+        updateOffsets(index);
+        notifyItemRangeRemoved(start, entry.count);
+        // the view types of the adapter are never used again
+        for (int i = 0; i < entry.viewTypes.size(); i++) {
+            final int viewType = entry.viewTypes.valueAt(i);
+            mTypeOwners.set(viewType, null);
+            for (RecyclerView recyclerView : mRecyclerViews) {
+                recyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+            }
+        }
+        entry.viewTypes.clear();
+        for (RecyclerView recyclerView : mRecyclerViews) {
+            adapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    /**
+     * Returns the number of adapters.
+     * @return number of adapters
+     */
+    @SuppressWarnings("unused")
+    public int getAdapterCount() {
+        return mEntries.size();
+    }
+
+    /**
+     * Returns the adapter displaying the given position.
+     * @param position position in this adapter
+     * @return adapter
+     */
+    @SuppressWarnings("unused")
+    public RecyclerView.Adapter getAdapterForPosition(int position) {
+        return mEntries.get(findEntry(position)).adapter;
+    }
+
+    /**
+     * Returns the position within its own adapter of the given position.
+     * @param position position in this adapter
+     * @return position in the adapter returned by getAdapterForPosition(int)
+     */
+    @SuppressWarnings("unused")
+    public int getLocalPosition(int position) {
+        return position - mOffsets[findEntry(position)];
+    }
+
+    /**
+     * Returns the position of the first item of the given adapter.
+     * @param adapter adapter of this adapter
+     * @return position in this adapter or -1 if the adapter has not been added
+     */
+    @SuppressWarnings("unused")
+    public int getStartPosition(RecyclerView.Adapter adapter) {
+        final int index = indexOf(adapter);
+        return index < 0 ? -1 : mOffsets[index];
+    }
+
+    @Override
+    public int getItemCount() {
+        return mOffsets[mEntries.size()];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        final int index = findEntry(position);
+        return mEntries.get(index).adapter.getItemId(position - mOffsets[index]);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        final int index = findEntry(position);
+        final Entry entry = mEntries.get(index);
+        final int localType = entry.adapter.getItemViewType(position - mOffsets[index]);
+        int viewType = entry.viewTypes.get(localType, -1);
+        if (viewType < 0) {
+            viewType = mTypeOwners.size();
+            mTypeOwners.add(entry);
+            mLocalTypes.add(localType);
+            entry.viewTypes.put(localType, viewType);
+        }
+        return viewType;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return mTypeOwners.get(viewType).adapter.onCreateViewHolder(parent, mLocalTypes.get(viewType));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        final int index = findEntry(position);
+        mEntries.get(index).adapter.onBindViewHolder(holder, position - mOffsets[index]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        final int index = findEntry(position);
+        mEntries.get(index).adapter.onBindViewHolder(holder, position - mOffsets[index], payloads);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        final RecyclerView.Adapter owner = getOwner(holder);
+        if (owner != null) {
+            owner.onViewRecycled(holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        final RecyclerView.Adapter owner = getOwner(holder);
+        return owner != null && owner.onFailedToRecycleView(holder);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        final RecyclerView.Adapter owner = getOwner(holder);
+        if (owner != null) {
+            owner.onViewAttachedToWindow(holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        final RecyclerView.Adapter owner = getOwner(holder);
+        if (owner != null) {
+            owner.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mRecyclerViews.add(recyclerView);
+        for (Entry entry : mEntries) {
+            entry.adapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mRecyclerViews.remove(recyclerView);
+        for (Entry entry : mEntries) {
+            entry.adapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    /**
+     * Check if the given position is a header view or the empty view of an AdvancedRecyclerAdapter.
+     * @param position position in this adapter
+     * @return true - if the item should span all columns; false - otherwise
+     */
+    boolean isFullSpan(int position) {
+        final int index = findEntry(position);
+        final RecyclerView.Adapter adapter = mEntries.get(index).adapter;
+        if (!(adapter instanceof AdvancedRecyclerAdapter)) {
+            return false;
+        }
+        final AdvancedRecyclerAdapter headerAdapter = (AdvancedRecyclerAdapter) adapter;
+        final int fullSpanCount = headerAdapter.getHeaderCount() + (headerAdapter.getContentItemCount() == 0 ? 1 : 0);
+        return position - mOffsets[index] < fullSpanCount;
+    }
+
+    /**
+     * Returns the adapter which created the given holder.
+     * @return adapter or null if the adapter has been removed
+     */
+    private RecyclerView.Adapter getOwner(RecyclerView.ViewHolder holder) {
+        final Entry owner = mTypeOwners.get(holder.getItemViewType());
+        return owner == null ? null : owner.adapter;
+    }
+
+    private int indexOf(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).adapter == adapter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the adapter containing the given position with a binary search over the start positions.
+     * Adapters without items are skipped.
+     */
+    private int findEntry(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", item count " + getItemCount());
+        }
+        int low = 0;
+        int high = mEntries.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (mOffsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recompute the start positions of all adapters from the given index on.
+     */
+    private void updateOffsets(int fromIndex) {
+        final int size = mEntries.size();
+        if (mOffsets.length != size + 1) {
+            final int[] offsets = new int[size + 1];
+            System.arraycopy(mOffsets, 0, offsets, 0, Math.min(fromIndex + 1, Math.min(mOffsets.length, offsets.length)));
+            mOffsets = offsets;
+        }
+        for (int i = fromIndex; i < size; i++) {
+            mOffsets[i + 1] = mOffsets[i] + mEntries.get(i).count;
+        }
+    }
+
+    /**
+     * An adapter of this adapter with its view types and its forwarding observer.
+     */
+    private class Entry {
+
+        private final RecyclerView.Adapter adapter;
+        private final SparseIntArray viewTypes = new SparseIntArray();
+        private int count;
+
+        private final RecyclerView.AdapterDataObserver observer = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                // only the range of this adapter is updated
+                final int index = mEntries.indexOf(Entry.this);
+                final int start = mOffsets[index];
+                final int oldCount = count;
+                count = adapter.getItemCount();
+                updateOffsets(index);
+                notifyItemRangeChanged(start, Math.min(oldCount, count));
+                if (count > oldCount) {
+                    notifyItemRangeInserted(start + oldCount, count - oldCount);
+                } else if (count < oldCount) {
+                    notifyItemRangeRemoved(start + count, oldCount - count);
+                }
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifyItemRangeChanged(getStart() + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                notifyItemRangeChanged(getStart() + positionStart, itemCount, payload);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                final int index = mEntries.indexOf(Entry.this);
+                count += itemCount;
+                updateOffsets(index);
+                notifyItemRangeInserted(mOffsets[index] + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                final int index = mEntries.indexOf(Entry.this);
+                count -= itemCount;
+                updateOffsets(index);
+                notifyItemRangeRemoved(mOffsets[index] + positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                final int start = getStart();
+                for (int i = 0; i < itemCount; i++) {
+                    if (fromPosition > toPosition) {
+                        notifyItemMoved(start + fromPosition + i, start + toPosition + i);
+                    } else {
+                        notifyItemMoved(start + fromPosition, start + toPosition + itemCount - 1);
+                    }
+                }
+            }
+
+            private int getStart() {
+                return mOffsets[mEntries.indexOf(Entry.this)];
+            }
+        };
+
+        private Entry(RecyclerView.Adapter adapter) {
+            this.adapter = adapter;
+        }
+    }
+}
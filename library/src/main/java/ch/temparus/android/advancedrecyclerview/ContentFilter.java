@@ -0,0 +1,311 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseBooleanArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filter for the content list of a {@link BaseAdapter} running the predicate on a background thread.
+ *
+ * The filter keeps a snapshot of all items (the source) and shows the matching ones in the content list of the
+ * adapter. The source is scanned in chunks and every chunk is applied on the main thread as soon as it is done,
+ * so the first results are shown while the rest is still filtered. A new query supersedes the running one,
+ * which stops at its next chunk.
+ *
+ * The displayed items and the matches are both ordered like the source, so they are merged chunk by chunk and
+ * only the inserted and removed ranges are notified (behind the header views). Selected items which are
+ * filtered out are selected again once they match a later query.
+ *
+ * Note: Once a filter is used, the content list must only be modified through the filter.
+ *
+ * @author Sandro Lutz
+ */
+public class ContentFilter<T> {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    // above this number of ranges per chunk, the chunk is replaced with a single removal and insertion
+    private static final int MAX_RANGES_PER_CHUNK = 32;
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final Executor BACKGROUND = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            BackgroundExecutor.execute(task);
+        }
+    };
+
+    private final BaseAdapter mAdapter;
+    private final List<T> mContent;
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private final SparseBooleanArray mHiddenSelection = new SparseBooleanArray();
+
+    private List<T> mSource;
+    private int[] mContentIndices;
+    private int mContentCount;
+    private int mCursor;
+    private Predicate<? super T> mPredicate;
+    private int mChunkSize = DEFAULT_CHUNK_SIZE;
+    private OnFilterCompleteListener mListener;
+    private Executor mExecutor = BACKGROUND;
+
+    /**
+     * Predicate deciding which items of the source are shown.
+     */
+    public interface Predicate<T> {
+
+        /**
+         * Called on a background thread for every item of the source.
+         * @param item item of the source
+         * @return true - if the item should be shown; false - otherwise
+         */
+        boolean matches(T item);
+    }
+
+    /**
+     * Listener notified once all chunks of a query have been applied.
+     */
+    public interface OnFilterCompleteListener {
+
+        /**
+         * Called on the main thread after the last chunk of a query has been applied.
+         * @param matchCount number of shown items
+         */
+        void onFilterComplete(int matchCount);
+    }
+
+    /**
+     * The current items of the content list become the source of this filter.
+     * @param adapter adapter displaying the content list
+     * @param content content list of the adapter, i.e. the list getContentItem(int) reads from
+     */
+    public ContentFilter(BaseAdapter adapter, List<T> content) {
+        mAdapter = adapter;
+        mContent = content;
+        mSource = new ArrayList<>(content);
+        mContentCount = content.size();
+        mContentIndices = new int[Math.max(mContentCount, 16)];
+        for (int i = 0; i < mContentCount; i++) {
+            mContentIndices[i] = i;
+        }
+    }
+
+    /**
+     * Replace the source of this filter. The content list is cleared and the current query is applied to the new source.
+     * Must be called on the main thread.
+     * @param source all items which may be shown
+     */
+    @SuppressWarnings("unused")
+    public void setSource(List<T> source) {
+        mGeneration.incrementAndGet();
+        mSource = new ArrayList<>(source);
+        mHiddenSelection.clear();
+        final int count = mContent.size();
+        mContent.clear();
+        mContentCount = 0;
+        mAdapter.notifyContentItemRangeRemoved(0, count);
+        filter(mPredicate);
+    }
+
+    /**
+     * Returns the number of items in the source of this filter.
+     * @return number of items
+     */
+    @SuppressWarnings("unused")
+    public int getSourceCount() {
+        return mSource.size();
+    }
+
+    /**
+     * Set the number of source items filtered before the matches are applied to the content list.
+     * @param chunkSize number of items (default: 1000)
+     */
+    @SuppressWarnings("unused")
+    public void setChunkSize(int chunkSize) {
+        mChunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Set the listener notified once a query has been applied completely.
+     * @param listener listener or null
+     */
+    @SuppressWarnings("unused")
+    public void setOnFilterCompleteListener(OnFilterCompleteListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Set the executor scanning the source, e.g. a synchronous one in tests.
+     * @param executor executor (default: the background thread of this library)
+     */
+    void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Show the items of the source matching the given predicate. Supersedes the running query.
+     * Must be called on the main thread.
+     * @param predicate predicate or null to show all items
+     */
+    public void filter(final Predicate<? super T> predicate) {
+        mPredicate = predicate;
+        final int generation = mGeneration.incrementAndGet();
+        final List<T> source = mSource;
+        final int chunkSize = mChunkSize;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int size = source.size();
+                int start = 0;
+                do {
+                    if (mGeneration.get() != generation) return;
+                    final int end = Math.min(start + chunkSize, size);
+                    final int[] matches = new int[end - start];
+                    int matchCount = 0;
+                    for (int i = start; i < end; i++) {
+                        if (predicate == null || predicate.matches(source.get(i))) {
+                            matches[matchCount++] = i;
+                        }
+                    }
+                    postChunk(generation, start, end, matches, matchCount, end == size);
+                    start = end;
+                } while (start < size);
+            }
+        });
+    }
+
+    private void postChunk(final int generation, final int start, final int end, final int[] matches,
+                           final int matchCount, final boolean last) {
+        sHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mGeneration.get() != generation) return;
+                if (start == 0) {
+                    mCursor = 0;
+                }
+                applyChunk(end, matches, matchCount);
+                if (last && mListener != null) {
+                    mListener.onFilterComplete(mContentCount);
+                }
+            }
+        });
+    }
+
+    /**
+     * Merge the matches of the source range ending at sourceEnd into the content list.
+     * The content list is changed range by range, each right before its notification,
+     * so the adapter always sees the content item count matching the notification.
+     */
+    private void applyChunk(int sourceEnd, int[] matches, int matchCount) {
+        int regionEnd = mCursor;
+        while (regionEnd < mContentCount && mContentIndices[regionEnd] < sourceEnd) {
+            regionEnd++;
+        }
+        final int oldLength = regionEnd - mCursor;
+        final int[] oldIndices = new int[oldLength];
+        System.arraycopy(mContentIndices, mCursor, oldIndices, 0, oldLength);
+
+        if (countRanges(oldIndices, matches, matchCount) > MAX_RANGES_PER_CHUNK) {
+            remove(mCursor, oldIndices, 0, oldLength);
+            insert(mCursor, matches, 0, matchCount);
+        } else {
+            int position = mCursor;
+            int i = 0;
+            int j = 0;
+            while (i < oldLength || j < matchCount) {
+                if (i < oldLength && j < matchCount && oldIndices[i] == matches[j]) {
+                    position++;
+                    i++;
+                    j++;
+                } else if (j >= matchCount || (i < oldLength && oldIndices[i] < matches[j])) {
+                    final int from = i;
+                    while (i < oldLength && (j >= matchCount || oldIndices[i] < matches[j])) {
+                        i++;
+                    }
+                    remove(position, oldIndices, from, i - from);
+                } else {
+                    final int from = j;
+                    while (j < matchCount && (i >= oldLength || matches[j] < oldIndices[i])) {
+                        j++;
+                    }
+                    insert(position, matches, from, j - from);
+                    position += j - from;
+                }
+            }
+        }
+
+        // the content indices follow the content list: prefix, matches of this chunk, rest of the previous query
+        final int tail = mContentCount - regionEnd;
+        final int count = mCursor + matchCount + tail;
+        int[] indices = mContentIndices;
+        if (count > indices.length) {
+            indices = new int[Math.max(count, indices.length * 2)];
+            System.arraycopy(mContentIndices, 0, indices, 0, mCursor);
+        }
+        System.arraycopy(mContentIndices, regionEnd, indices, mCursor + matchCount, tail);
+        System.arraycopy(matches, 0, indices, mCursor, matchCount);
+        mContentIndices = indices;
+        mContentCount = count;
+        mCursor += matchCount;
+    }
+
+    private static int countRanges(int[] oldIndices, int[] matches, int matchCount) {
+        int ranges = 0;
+        int i = 0;
+        int j = 0;
+        boolean inRange = false;
+        while (i < oldIndices.length || j < matchCount) {
+            if (i < oldIndices.length && j < matchCount && oldIndices[i] == matches[j]) {
+                inRange = false;
+                i++;
+                j++;
+            } else {
+                if (!inRange) {
+                    ranges++;
+                    inRange = true;
+                }
+                if (j >= matchCount || (i < oldIndices.length && oldIndices[i] < matches[j])) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private void remove(int position, int[] sourceIndices, int from, int count) {
+        if (count <= 0) return;
+        final int headerCount = mAdapter.getHeaderCount();
+        for (int k = 0; k < count; k++) {
+            if (mAdapter.isSelected(headerCount + position + k)) {
+                mHiddenSelection.put(sourceIndices[from + k], true);
+            }
+        }
+        mContent.subList(position, position + count).clear();
+        mAdapter.notifyContentItemRangeRemoved(position, count);
+    }
+
+    private void insert(int position, int[] sourceIndices, int from, int count) {
+        if (count <= 0) return;
+        final List<T> items = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            items.add(mSource.get(sourceIndices[from + k]));
+        }
+        mContent.addAll(position, items);
+        mAdapter.notifyContentItemRangeInserted(position, count);
+        if (mHiddenSelection.size() == 0) return;
+        final int headerCount = mAdapter.getHeaderCount();
+        for (int k = 0; k < count; k++) {
+            final int sourceIndex = sourceIndices[from + k];
+            if (mHiddenSelection.get(sourceIndex, false)) {
+                mHiddenSelection.delete(sourceIndex);
+                mAdapter.setRangeSelected(headerCount + position + k, 1, true);
+            }
+        }
+    }
+}
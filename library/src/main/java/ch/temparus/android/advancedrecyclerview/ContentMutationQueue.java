@@ -0,0 +1,258 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue of changes to the content list of a {@link BaseAdapter} which may be enqueued from any thread.
+ *
+ * The changes are collected in a lock-free queue and applied to the content list once per frame on the main
+ * thread. Consecutive changes of the same kind affecting adjacent positions are coalesced into a single range
+ * notification, e.g. hundreds of appended items within a frame cause a single notifyContentItemRangeInserted(...)
+ * and thus a single layout pass. The notifications respect the header views and keep the selection in sync.
+ *
+ * Changes with a position outside of the content list at the time they are applied (e.g. because another thread
+ * has removed the item in the meantime) are dropped and reported to the OnChangeDroppedListener.
+ *
+ * Note: Once a queue is used, the content list must only be modified through the queue
+ *       (or on the main thread with the queue drained), otherwise the positions of the queued changes are undefined.
+ *
+ * @author Sandro Lutz
+ */
+public class ContentMutationQueue<T> {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    private final BaseAdapter mAdapter;
+    private final List<T> mContent;
+    private final ConcurrentLinkedQueue<Mutation<T>> mQueue = new ConcurrentLinkedQueue<>();
+    private final FrameTask mDrainTask = new FrameTask() {
+        @Override
+        void onFrame() {
+            drain();
+        }
+    };
+
+    private OnChangeDroppedListener<? super T> mDroppedListener;
+
+    // pending range notification of the current drain
+    private int mPendingType = -1;
+    private int mPendingStart;
+    private int mPendingCount;
+
+    /**
+     * Listener notified about changes which could not be applied.
+     */
+    public interface OnChangeDroppedListener<T> {
+
+        /**
+         * Called on the main thread for a change whose position is outside of the content list.
+         * @param position content position of the change
+         * @param item inserted or new item, null for a removal
+         */
+        void onChangeDropped(int position, T item);
+    }
+
+    /**
+     * @param adapter adapter displaying the content list
+     * @param content content list of the adapter, i.e. the list getContentItem(int) reads from
+     */
+    public ContentMutationQueue(BaseAdapter adapter, List<T> content) {
+        mAdapter = adapter;
+        mContent = content;
+    }
+
+    /**
+     * Set the listener notified about changes which have been dropped because of their position.
+     * @param listener listener or null
+     */
+    @SuppressWarnings("unused")
+    public void setOnChangeDroppedListener(OnChangeDroppedListener<? super T> listener) {
+        mDroppedListener = listener;
+    }
+
+    /**
+     * Append an item to the content list. May be called from any thread.
+     * @param item item to be appended
+     */
+    @SuppressWarnings("unused")
+    public void add(T item) {
+        enqueue(new Mutation<>(INSERT, -1, item));
+    }
+
+    /**
+     * Insert an item into the content list. May be called from any thread.
+     * @param position content position at the time the change is applied
+     * @param item item to be inserted
+     */
+    @SuppressWarnings("unused")
+    public void add(int position, T item) {
+        checkPosition(position);
+        enqueue(new Mutation<>(INSERT, position, item));
+    }
+
+    /**
+     * Replace an item of the content list. May be called from any thread.
+     * @param position content position at the time the change is applied
+     * @param item new item
+     */
+    @SuppressWarnings("unused")
+    public void set(int position, T item) {
+        checkPosition(position);
+        enqueue(new Mutation<>(CHANGE, position, item));
+    }
+
+    /**
+     * Remove an item from the content list. May be called from any thread.
+     * @param position content position at the time the change is applied
+     */
+    @SuppressWarnings("unused")
+    public void remove(int position) {
+        checkPosition(position);
+        enqueue(new Mutation<T>(REMOVE, position, null));
+    }
+
+    /**
+     * Remove the first occurrence of an item from the content list, if present. May be called from any thread.
+     * @param item item to be removed
+     */
+    @SuppressWarnings("unused")
+    public void removeItem(T item) {
+        enqueue(new Mutation<>(REMOVE, -1, item));
+    }
+
+    /**
+     * Apply all queued changes immediately. Must be called on the main thread.
+     */
+    @SuppressWarnings("unused")
+    public void flush() {
+        mDrainTask.cancel();
+        drain();
+    }
+
+    private static void checkPosition(int position) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("Invalid position " + position);
+        }
+    }
+
+    private void enqueue(Mutation<T> mutation) {
+        mQueue.offer(mutation);
+        mDrainTask.schedule();
+    }
+
+    private void drain() {
+        Mutation<T> mutation;
+        while ((mutation = mQueue.poll()) != null) {
+            apply(mutation);
+        }
+        dispatchPending();
+    }
+
+    private void apply(Mutation<T> mutation) {
+        int position = mutation.position;
+        if (position < 0) {
+            position = mutation.type == INSERT ? mContent.size() : mContent.indexOf(mutation.item);
+            if (position < 0) return;
+        } else if (position > mContent.size() || (mutation.type != INSERT && position == mContent.size())) {
+            // the position has been computed for an older state of the content list
+            if (mDroppedListener != null) {
+                mDroppedListener.onChangeDropped(position, mutation.item);
+            }
+            return;
+        }
+        // the adapter reads the content item count while notifying, so the pending range
+        // has to be dispatched before the content list is changed any further
+        if (!extendPending(mutation.type, position)) {
+            dispatchPending();
+            mPendingType = mutation.type;
+            mPendingStart = position;
+            mPendingCount = 1;
+        }
+        switch (mutation.type) {
+            case INSERT:
+                mContent.add(position, mutation.item);
+                break;
+            case REMOVE:
+                mContent.remove(position);
+                break;
+            case CHANGE:
+                mContent.set(position, mutation.item);
+                break;
+        }
+    }
+
+    /**
+     * Try to add the given change to the pending range notification.
+     * @return true - if the pending range covers the change; false - otherwise
+     */
+    private boolean extendPending(int type, int position) {
+        if (type != mPendingType) {
+            return false;
+        }
+        final int end = mPendingStart + mPendingCount;
+        switch (type) {
+            case INSERT:
+                if (position >= mPendingStart && position <= end) {
+                    mPendingCount++;
+                    return true;
+                }
+                return false;
+            case REMOVE:
+                if (position == mPendingStart) {
+                    mPendingCount++;
+                    return true;
+                } else if (position == mPendingStart - 1) {
+                    mPendingStart--;
+                    mPendingCount++;
+                    return true;
+                }
+                return false;
+            default: // CHANGE
+                if (position >= mPendingStart && position < end) {
+                    return true;
+                } else if (position == end) {
+                    mPendingCount++;
+                    return true;
+                } else if (position == mPendingStart - 1) {
+                    mPendingStart--;
+                    mPendingCount++;
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    private void dispatchPending() {
+        switch (mPendingType) {
+            case INSERT:
+                mAdapter.notifyContentItemRangeInserted(mPendingStart, mPendingCount);
+                break;
+            case REMOVE:
+                mAdapter.notifyContentItemRangeRemoved(mPendingStart, mPendingCount);
+                break;
+            case CHANGE:
+                mAdapter.notifyContentItemRangeChanged(mPendingStart, mPendingCount);
+                break;
+        }
+        mPendingType = -1;
+    }
+
+    /**
+     * Queued change of the content list.
+     */
+    private static class Mutation<T> {
+
+        private final int type;
+        private final int position;
+        private final T item;
+
+        private Mutation(int type, int position, T item) {
+            this.type = type;
+            this.position = position;
+            this.item = item;
+        }
+    }
+}
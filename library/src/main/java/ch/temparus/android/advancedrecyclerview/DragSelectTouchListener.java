@@ -0,0 +1,238 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseBooleanArray;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Touch listener selecting the contiguous range between an anchor item and the item under the finger.
+ *
+ * Register it with RecyclerView.addOnItemTouchListener(...) and call startDragSelection(int),
+ * e.g. from the long click listener of an item. While a drag selection is in progress, the listener takes over
+ * the gesture from the item and the scrolling of the view. The connected adapter has to implement {@link RangeSelectionRecyclerAdapter}.
+ *
+ * Touch events only record the finger position. The selection is updated at most once per animation frame
+ * and only the items entering or leaving the selected range are changed and notified. Items which were
+ * selected before the drag keep their selection. Near the edges of the view, the list is scrolled automatically.
+ *
+ * @author Sandro Lutz
+ */
+public class DragSelectTouchListener implements RecyclerView.OnItemTouchListener {
+
+    private static final float AUTO_SCROLL_AREA = 0.15f;
+    private static final int MAX_AUTO_SCROLL_DP = 16;
+
+    private final RecyclerView mRecyclerView;
+    private final SparseBooleanArray mChangedItems = new SparseBooleanArray();
+    private final int mMaxAutoScroll;
+
+    private boolean mActive = false;
+    private boolean mFrameScheduled = false;
+    private int mAnchorPosition = RecyclerView.NO_POSITION;
+    private int mRangeStart = RecyclerView.NO_POSITION;
+    private int mRangeEnd = RecyclerView.NO_POSITION;
+    private float mTouchX;
+    private float mTouchY;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFrameScheduled = false;
+            if (!mActive) return;
+            boolean scrolling = autoScroll();
+            updateSelection();
+            if (scrolling) {
+                scheduleFrame();
+            }
+        }
+    };
+
+    /**
+     * @param recyclerView RecyclerView connected with a {@link RangeSelectionRecyclerAdapter}
+     */
+    public DragSelectTouchListener(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        mMaxAutoScroll = (int) (MAX_AUTO_SCROLL_DP * recyclerView.getResources().getDisplayMetrics().density + 0.5f);
+    }
+
+    /**
+     * Start a drag selection at the given item. The item becomes the anchor of the selected range.
+     * @param position item position (header views included!)
+     * @return true - if the drag selection has been started; false - if the item is not selectable
+     */
+    public boolean startDragSelection(int position) {
+        RangeSelectionRecyclerAdapter adapter = getAdapter();
+        if (adapter == null || !adapter.isSelectable(position)) {
+            return false;
+        }
+        mActive = true;
+        mAnchorPosition = position;
+        mRangeStart = RecyclerView.NO_POSITION;
+        mRangeEnd = RecyclerView.NO_POSITION;
+        mChangedItems.clear();
+        applyRange(position, position);
+        if (mRecyclerView.getParent() != null) {
+            mRecyclerView.getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        return true;
+    }
+
+    /**
+     * Check if a drag selection is in progress.
+     * @return true - if a drag selection is in progress; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public boolean isDragSelecting() {
+        return mActive;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent motionEvent) {
+        if (!mActive) {
+            return false;
+        }
+        onTouch(motionEvent);
+        return true;
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView recyclerView, MotionEvent motionEvent) {
+        if (mActive) {
+            onTouch(motionEvent);
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    private void onTouch(MotionEvent motionEvent) {
+        switch (motionEvent.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_MOVE:
+                mTouchX = motionEvent.getX();
+                mTouchY = motionEvent.getY();
+                scheduleFrame();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                stopDragSelection();
+                break;
+        }
+    }
+
+    private void stopDragSelection() {
+        mActive = false;
+        mAnchorPosition = RecyclerView.NO_POSITION;
+        mRangeStart = RecyclerView.NO_POSITION;
+        mRangeEnd = RecyclerView.NO_POSITION;
+        mChangedItems.clear();
+        mRecyclerView.removeCallbacks(mFrameRunnable);
+        mFrameScheduled = false;
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            ViewCompat.postOnAnimation(mRecyclerView, mFrameRunnable);
+        }
+    }
+
+    private boolean autoScroll() {
+        final RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager == null) return false;
+        final boolean vertical = layoutManager.canScrollVertically();
+        final float touch = vertical ? mTouchY : mTouchX;
+        final int size = vertical ? mRecyclerView.getHeight() : mRecyclerView.getWidth();
+        final float area = size * AUTO_SCROLL_AREA;
+        if (area <= 0) return false;
+
+        int scroll = 0;
+        if (touch < area) {
+            scroll = -(int) Math.ceil(mMaxAutoScroll * Math.min(1f, (area - touch) / area));
+        } else if (touch > size - area) {
+            scroll = (int) Math.ceil(mMaxAutoScroll * Math.min(1f, (touch - size + area) / area));
+        }
+        if (scroll == 0) return false;
+
+        if (vertical) {
+            mRecyclerView.scrollBy(0, scroll);
+        } else {
+            mRecyclerView.scrollBy(scroll, 0);
+        }
+        return true;
+    }
+
+    private void updateSelection() {
+        View child = mRecyclerView.findChildViewUnder(mTouchX, mTouchY);
+        if (child == null) return;
+        int position = mRecyclerView.getChildAdapterPosition(child);
+        if (position == RecyclerView.NO_POSITION) return;
+        applyRange(Math.min(mAnchorPosition, position), Math.max(mAnchorPosition, position));
+    }
+
+    /**
+     * Change the selected range, touching only the items entering or leaving the range.
+     * @param start first position of the new range
+     * @param end last position of the new range
+     */
+    private void applyRange(int start, int end) {
+        if (start == mRangeStart && end == mRangeEnd) return;
+        if (mRangeStart == RecyclerView.NO_POSITION) {
+            select(start, end);
+        } else {
+            // items leaving the range
+            restore(mRangeStart, Math.min(mRangeEnd, start - 1));
+            restore(Math.max(mRangeStart, end + 1), mRangeEnd);
+            // items entering the range
+            select(start, Math.min(end, mRangeStart - 1));
+            select(Math.max(start, mRangeEnd + 1), end);
+        }
+        mRangeStart = start;
+        mRangeEnd = end;
+    }
+
+    private void select(int from, int to) {
+        RangeSelectionRecyclerAdapter adapter = getAdapter();
+        if (adapter == null) return;
+        int runStart = -1;
+        for (int position = from; position <= to; position++) {
+            boolean change = adapter.isSelectable(position) && !adapter.isSelected(position);
+            if (change) {
+                mChangedItems.put(position, true);
+                if (runStart < 0) runStart = position;
+            } else if (runStart >= 0) {
+                adapter.setRangeSelected(runStart, position - runStart, true);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            adapter.setRangeSelected(runStart, to + 1 - runStart, true);
+        }
+    }
+
+    private void restore(int from, int to) {
+        RangeSelectionRecyclerAdapter adapter = getAdapter();
+        if (adapter == null) return;
+        int runStart = -1;
+        for (int position = from; position <= to; position++) {
+            boolean change = mChangedItems.get(position, false);
+            if (change) {
+                mChangedItems.delete(position);
+                if (runStart < 0) runStart = position;
+            } else if (runStart >= 0) {
+                adapter.setRangeSelected(runStart, position - runStart, false);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            adapter.setRangeSelected(runStart, to + 1 - runStart, false);
+        }
+    }
+
+    private RangeSelectionRecyclerAdapter getAdapter() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        return adapter instanceof RangeSelectionRecyclerAdapter ? (RangeSelectionRecyclerAdapter) adapter : null;
+    }
+}
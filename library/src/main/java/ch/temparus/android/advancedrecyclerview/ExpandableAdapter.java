@@ -0,0 +1,328 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+import java.util.BitSet;
+
+/**
+ * BaseAdapter for two-level lists consisting of groups which can be expanded to show their children.
+ *
+ * The expanded state of all groups is kept in a bit set and the flat content positions are mapped to
+ * groups and children by a prefix sum tree over the group sizes, so a lookup costs O(log n).
+ * Expanding or collapsing a group notifies the view with a single range insertion or removal.
+ *
+ * Note: Whenever the group data set changes, you have to call notifyGroupDataSetChanged() instead of
+ *       notifyDataSetChanged() to invalidate the position mapping.
+ *
+ * @author Sandro Lutz
+ */
+public abstract class ExpandableAdapter<GroupViewHolder extends BaseAdapter.ViewHolder, ChildViewHolder extends BaseAdapter.ViewHolder>
+        extends BaseAdapter<BaseAdapter.ViewHolder> {
+
+    protected int GROUP_VIEW = CONTENT_VIEW;
+    protected int CHILD_VIEW = CONTENT_VIEW + 1;
+
+    private final BitSet mExpandedGroups;
+    private final PrefixSumTree mPositions;
+    private boolean mPositionsValid = false;
+
+    public ExpandableAdapter(Context context) {
+        super(context);
+        mExpandedGroups = new BitSet();
+        mPositions = new PrefixSumTree();
+    }
+
+    /**
+     * Returns the total number of groups in the data set hold by the adapter.
+     * @return The total number of groups in this adapter.
+     */
+    public abstract int getGroupCount();
+
+    /**
+     * Returns the number of children of the given group.
+     * @param groupPosition group position
+     * @return The number of children of the given group.
+     */
+    public abstract int getChildCount(int groupPosition);
+
+    /**
+     * Get group item of the adapter.
+     * @param groupPosition group position
+     * @return group item
+     */
+    public abstract Object getGroup(int groupPosition);
+
+    /**
+     * Get child item of the adapter.
+     * @param groupPosition group position
+     * @param childPosition child position within the group
+     * @return child item
+     */
+    public abstract Object getChild(int groupPosition, int childPosition);
+
+    /**
+     * Called when RecyclerView needs a new ViewHolder to represent a group.
+     * @param parent The ViewGroup into which the new View will be added after it is bound to an adapter position
+     * @param viewType The view type of the new View.
+     * @return A new ViewHolder that holds a View of the given view type.
+     */
+    public abstract GroupViewHolder onCreateGroupViewHolder(ViewGroup parent, int viewType);
+
+    /**
+     * Called when RecyclerView needs a new ViewHolder to represent a child.
+     * @param parent The ViewGroup into which the new View will be added after it is bound to an adapter position
+     * @param viewType The view type of the new View.
+     * @return A new ViewHolder that holds a View of the given view type.
+     */
+    public abstract ChildViewHolder onCreateChildViewHolder(ViewGroup parent, int viewType);
+
+    /**
+     * Called to display the data of the given group.
+     * @param holder The ViewHolder which should be updated to represent the group.
+     * @param groupPosition group position
+     * @param expanded true - if the group is expanded; false - otherwise
+     * @param selected true - if the group is selected; false - otherwise
+     */
+    public abstract void onBindGroupViewHolder(GroupViewHolder holder, int groupPosition, boolean expanded, boolean selected);
+
+    /**
+     * Called to display the data of the given child.
+     * @param holder The ViewHolder which should be updated to represent the child.
+     * @param groupPosition group position
+     * @param childPosition child position within the group
+     * @param selected true - if the child is selected; false - otherwise
+     */
+    public abstract void onBindChildViewHolder(ChildViewHolder holder, int groupPosition, int childPosition, boolean selected);
+
+    /**
+     * Check if the given group is selectable.
+     * @param groupPosition group position
+     * @return true - if group is selectable; false - otherwise
+     */
+    public boolean isGroupSelectable(int groupPosition) {
+        return true;
+    }
+
+    /**
+     * Check if the given child is selectable.
+     * @param groupPosition group position
+     * @param childPosition child position within the group
+     * @return true - if child is selectable; false - otherwise
+     */
+    public boolean isChildSelectable(int groupPosition, int childPosition) {
+        return true;
+    }
+
+    /**
+     * Check if the given group is expanded.
+     * @param groupPosition group position
+     * @return true - if the group is expanded; false - otherwise
+     */
+    public boolean isGroupExpanded(int groupPosition) {
+        return mExpandedGroups.get(groupPosition);
+    }
+
+    /**
+     * Expand the given group and show its children.
+     * @param groupPosition group position
+     */
+    public void expandGroup(int groupPosition) {
+        if (mExpandedGroups.get(groupPosition)) return;
+        ensurePositions();
+        final int childCount = getChildCount(groupPosition);
+        final int contentPosition = (int) mPositions.sum(groupPosition);
+        mExpandedGroups.set(groupPosition);
+        mPositions.set(groupPosition, 1 + childCount);
+        notifyContentItemChanged(contentPosition);
+        notifyContentItemRangeInserted(contentPosition + 1, childCount);
+    }
+
+    /**
+     * Collapse the given group and hide its children.
+     * @param groupPosition group position
+     */
+    public void collapseGroup(int groupPosition) {
+        if (!mExpandedGroups.get(groupPosition)) return;
+        ensurePositions();
+        final int childCount = mPositions.get(groupPosition) - 1;
+        final int contentPosition = (int) mPositions.sum(groupPosition);
+        mExpandedGroups.clear(groupPosition);
+        mPositions.set(groupPosition, 1);
+        notifyContentItemChanged(contentPosition);
+        notifyContentItemRangeRemoved(contentPosition + 1, childCount);
+    }
+
+    /**
+     * Toggle the expanded state of the given group.
+     * @param groupPosition group position
+     */
+    @SuppressWarnings("unused")
+    public void toggleGroup(int groupPosition) {
+        if (mExpandedGroups.get(groupPosition)) {
+            collapseGroup(groupPosition);
+        } else {
+            expandGroup(groupPosition);
+        }
+    }
+
+    /**
+     * Get group position of the item at the given content position.
+     * @param position position in content list (header views not included)
+     * @return group position
+     */
+    public int getGroupPosition(int position) {
+        ensurePositions();
+        return mPositions.indexOf(position);
+    }
+
+    /**
+     * Get child position of the item at the given content position.
+     * @param position position in content list (header views not included)
+     * @return child position within its group or -1 if the item is a group
+     */
+    public int getChildPosition(int position) {
+        ensurePositions();
+        return position - (int) mPositions.sum(mPositions.indexOf(position)) - 1;
+    }
+
+    /**
+     * Get content position of the given group.
+     * @param groupPosition group position
+     * @return position in content list (header views not included)
+     */
+    public int getContentPosition(int groupPosition) {
+        ensurePositions();
+        return (int) mPositions.sum(groupPosition);
+    }
+
+    /**
+     * Get content position of the given child.
+     * @param groupPosition group position
+     * @param childPosition child position within the group
+     * @return position in content list (header views not included) or -1 if the group is collapsed
+     */
+    @SuppressWarnings("unused")
+    public int getContentPosition(int groupPosition, int childPosition) {
+        if (!mExpandedGroups.get(groupPosition)) return -1;
+        return getContentPosition(groupPosition) + 1 + childPosition;
+    }
+
+    /**
+     * Notify the view that the groups or children have changed in any way.
+     * The expanded state of all groups within the new group count is retained.
+     */
+    public void notifyGroupDataSetChanged() {
+        int groupCount = getGroupCount();
+        if (mExpandedGroups.length() > groupCount) {
+            mExpandedGroups.clear(groupCount, mExpandedGroups.length());
+        }
+        mPositionsValid = false;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Notify the view that a group has changed.
+     * @param groupPosition group position
+     */
+    @SuppressWarnings("unused")
+    public void notifyGroupChanged(int groupPosition) {
+        notifyContentItemChanged(getContentPosition(groupPosition));
+    }
+
+    /**
+     * Notify the view that a child has changed.
+     * @param groupPosition group position
+     * @param childPosition child position within the group
+     */
+    @SuppressWarnings("unused")
+    public void notifyChildChanged(int groupPosition, int childPosition) {
+        if (!mExpandedGroups.get(groupPosition)) return;
+        notifyContentItemChanged(getContentPosition(groupPosition) + 1 + childPosition);
+    }
+
+    /**
+     * Notify the view that children have been inserted into a group.
+     * @param groupPosition group position
+     * @param childPositionStart position of the first inserted child within the group
+     * @param childCount number of inserted children
+     */
+    @SuppressWarnings("unused")
+    public void notifyChildRangeInserted(int groupPosition, int childPositionStart, int childCount) {
+        if (!mExpandedGroups.get(groupPosition)) return;
+        ensurePositions();
+        mPositions.set(groupPosition, mPositions.get(groupPosition) + childCount);
+        notifyContentItemRangeInserted((int) mPositions.sum(groupPosition) + 1 + childPositionStart, childCount);
+    }
+
+    /**
+     * Notify the view that children have been removed from a group.
+     * @param groupPosition group position
+     * @param childPositionStart position of the first removed child within the group
+     * @param childCount number of removed children
+     */
+    @SuppressWarnings("unused")
+    public void notifyChildRangeRemoved(int groupPosition, int childPositionStart, int childCount) {
+        if (!mExpandedGroups.get(groupPosition)) return;
+        ensurePositions();
+        mPositions.set(groupPosition, mPositions.get(groupPosition) - childCount);
+        notifyContentItemRangeRemoved((int) mPositions.sum(groupPosition) + 1 + childPositionStart, childCount);
+    }
+
+    @Override
+    public final BaseAdapter.ViewHolder onCreateContentViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == CHILD_VIEW) {
+            return onCreateChildViewHolder(parent, viewType);
+        }
+        return onCreateGroupViewHolder(parent, viewType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void onBindContentViewHolder(BaseAdapter.ViewHolder holder, int position, boolean selected) {
+        ensurePositions();
+        final int groupPosition = mPositions.indexOf(position);
+        final int childPosition = position - (int) mPositions.sum(groupPosition) - 1;
+        if (childPosition < 0) {
+            onBindGroupViewHolder((GroupViewHolder) holder, groupPosition, mExpandedGroups.get(groupPosition), selected);
+        } else {
+            onBindChildViewHolder((ChildViewHolder) holder, groupPosition, childPosition, selected);
+        }
+    }
+
+    @Override
+    public final int getContentItemCount() {
+        ensurePositions();
+        return (int) mPositions.total();
+    }
+
+    @Override
+    public final int getContentItemViewType(int position) {
+        return getChildPosition(position) < 0 ? GROUP_VIEW : CHILD_VIEW;
+    }
+
+    @Override
+    public final boolean isContentSelectable(int position) {
+        final int groupPosition = getGroupPosition(position);
+        final int childPosition = getChildPosition(position);
+        return childPosition < 0 ? isGroupSelectable(groupPosition) : isChildSelectable(groupPosition, childPosition);
+    }
+
+    @Override
+    public final Object getContentItem(int position) {
+        final int groupPosition = getGroupPosition(position);
+        final int childPosition = getChildPosition(position);
+        return childPosition < 0 ? getGroup(groupPosition) : getChild(groupPosition, childPosition);
+    }
+
+    private void ensurePositions() {
+        if (mPositionsValid) return;
+        final int groupCount = getGroupCount();
+        final int[] sizes = new int[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            sizes[i] = mExpandedGroups.get(i) ? 1 + getChildCount(i) : 1;
+        }
+        mPositions.build(sizes, groupCount);
+        mPositionsValid = true;
+    }
+}
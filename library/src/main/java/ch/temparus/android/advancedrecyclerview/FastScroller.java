@@ -0,0 +1,310 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Draggable scrollbar thumb for vertical lists and grids with an optional section bubble.
+ *
+ * With the layout managers of this library, the thumb position is computed from the index of the item extents
+ * recorded by their measure and layout passes. Items which have not been measured yet count with the average
+ * extent, so the thumb follows the content accurately and dragging it jumps to the matching scroll offset
+ * in O(log^2 n) at any list size. Other layout managers fall back to the scrollbar estimates of the RecyclerView.
+ *
+ * Enable it with AdvancedRecyclerView.setFastScrollEnabled(true).
+ *
+ * @author Sandro Lutz
+ */
+public class FastScroller extends RecyclerView.ItemDecoration implements RecyclerView.OnItemTouchListener {
+
+    private static final int THUMB_WIDTH_DP = 6;
+    private static final int THUMB_MIN_HEIGHT_DP = 48;
+    private static final int TOUCH_WIDTH_DP = 24;
+    private static final int BUBBLE_SIZE_DP = 64;
+    private static final int BUBBLE_MARGIN_DP = 16;
+    private static final int BUBBLE_TEXT_SIZE_DP = 28;
+    private static final long HIDE_DELAY = 1500;
+
+    private final RecyclerView mRecyclerView;
+    private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mThumbRect = new RectF();
+    private final RectF mBubbleRect = new RectF();
+
+    private final int mThumbWidth;
+    private final int mThumbMinHeight;
+    private final int mTouchWidth;
+    private final int mBubbleSize;
+    private final int mBubbleMargin;
+
+    private SectionTitleProvider mSectionTitleProvider;
+    private boolean mVisible = false;
+    private boolean mDragging = false;
+    private float mDragGrabOffset;
+    private int mDragPosition = RecyclerView.NO_POSITION;
+
+    private final Runnable mHideRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mDragging) {
+                mVisible = false;
+                mRecyclerView.invalidate();
+            }
+        }
+    };
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (dy != 0) {
+                show();
+            }
+        }
+    };
+
+    FastScroller(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        final float density = recyclerView.getResources().getDisplayMetrics().density;
+        mThumbWidth = (int) (THUMB_WIDTH_DP * density + 0.5f);
+        mThumbMinHeight = (int) (THUMB_MIN_HEIGHT_DP * density + 0.5f);
+        mTouchWidth = (int) (TOUCH_WIDTH_DP * density + 0.5f);
+        mBubbleSize = (int) (BUBBLE_SIZE_DP * density + 0.5f);
+        mBubbleMargin = (int) (BUBBLE_MARGIN_DP * density + 0.5f);
+
+        mThumbPaint.setColor(0x99000000);
+        mBubblePaint.setColor(0xFF424242);
+        mTextPaint.setColor(0xFFFFFFFF);
+        mTextPaint.setTextSize(BUBBLE_TEXT_SIZE_DP * density);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Set the color of the thumb.
+     * @param color ARGB color
+     */
+    @SuppressWarnings("unused")
+    public void setThumbColor(int color) {
+        mThumbPaint.setColor(color);
+        mRecyclerView.invalidate();
+    }
+
+    /**
+     * Set the background color of the section bubble.
+     * @param color ARGB color
+     */
+    @SuppressWarnings("unused")
+    public void setBubbleColor(int color) {
+        mBubblePaint.setColor(color);
+    }
+
+    /**
+     * Set the text color of the section bubble.
+     * @param color ARGB color
+     */
+    @SuppressWarnings("unused")
+    public void setBubbleTextColor(int color) {
+        mTextPaint.setColor(color);
+    }
+
+    /**
+     * Set the provider of the section titles shown in a bubble next to the thumb while dragging.
+     *
+     * Note: If no provider is set, the adapter is used if it implements {@link SectionTitleProvider}.
+     * @param provider section title provider or null
+     */
+    @SuppressWarnings("unused")
+    public void setSectionTitleProvider(SectionTitleProvider provider) {
+        mSectionTitleProvider = provider;
+    }
+
+    /**
+     * Returns whether the thumb is being dragged.
+     * @return true - if the thumb is being dragged; false - otherwise
+     */
+    @SuppressWarnings("unused")
+    public boolean isDragging() {
+        return mDragging;
+    }
+
+    void attach() {
+        mRecyclerView.addItemDecoration(this);
+        mRecyclerView.addOnItemTouchListener(this);
+        mRecyclerView.addOnScrollListener(mScrollListener);
+    }
+
+    void detach() {
+        mRecyclerView.removeItemDecoration(this);
+        mRecyclerView.removeOnItemTouchListener(this);
+        mRecyclerView.removeOnScrollListener(mScrollListener);
+        mRecyclerView.removeCallbacks(mHideRunnable);
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (!mVisible || !updateThumbRect()) return;
+        final float radius = mThumbWidth / 2f;
+        c.drawRoundRect(mThumbRect, radius, radius, mThumbPaint);
+
+        final String title = mDragging ? getSectionTitle(mDragPosition) : null;
+        if (title != null) {
+            final float right = mThumbRect.left - mBubbleMargin;
+            final float top = Math.max(0, mThumbRect.top + (mThumbRect.bottom - mThumbRect.top - mBubbleSize) / 2f);
+            mBubbleRect.set(right - mBubbleSize, top, right, top + mBubbleSize);
+            c.drawRoundRect(mBubbleRect, mBubbleSize / 2f, mBubbleSize / 2f, mBubblePaint);
+            final float baseline = top + (mBubbleSize - mTextPaint.ascent() - mTextPaint.descent()) / 2f;
+            c.drawText(title, right - mBubbleSize / 2f, baseline, mTextPaint);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent e) {
+        if (e.getActionMasked() != MotionEvent.ACTION_DOWN || !mVisible || !updateThumbRect()) {
+            return false;
+        }
+        final float x = e.getX();
+        final float y = e.getY();
+        if (x < mRecyclerView.getWidth() - mTouchWidth || y < mThumbRect.top || y > mThumbRect.bottom) {
+            return false;
+        }
+        mDragging = true;
+        mDragGrabOffset = y - mThumbRect.top;
+        mRecyclerView.removeCallbacks(mHideRunnable);
+        mRecyclerView.stopScroll();
+        return true;
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView recyclerView, MotionEvent e) {
+        if (!mDragging) return;
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                final float thumbHeight = mThumbRect.bottom - mThumbRect.top;
+                final float trackLength = mRecyclerView.getHeight() - thumbHeight;
+                if (trackLength > 0) {
+                    scrollToFraction(Math.max(0, Math.min(1, (e.getY() - mDragGrabOffset) / trackLength)));
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mDragging = false;
+                mDragPosition = RecyclerView.NO_POSITION;
+                show();
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    private void show() {
+        mVisible = true;
+        mRecyclerView.removeCallbacks(mHideRunnable);
+        if (!mDragging) {
+            mRecyclerView.postDelayed(mHideRunnable, HIDE_DELAY);
+        }
+        mRecyclerView.invalidate();
+    }
+
+    /**
+     * Compute the thumb bounds from the current scroll offset.
+     * @return true - if the content is scrollable and the thumb has to be drawn; false - otherwise
+     */
+    private boolean updateThumbRect() {
+        final RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager == null || !layoutManager.canScrollVertically() || layoutManager.getChildCount() == 0) {
+            return false;
+        }
+        final int height = mRecyclerView.getHeight();
+        final long range;
+        final long offset;
+        final ItemExtentIndex index = getExtentIndex(layoutManager);
+        if (index != null) {
+            range = index.getTotalExtent() + layoutManager.getPaddingTop() + layoutManager.getPaddingBottom();
+            final View first = layoutManager.getChildAt(0);
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) first.getLayoutParams();
+            offset = index.getOffset(layoutManager.getPosition(first)) + layoutManager.getPaddingTop()
+                    - (layoutManager.getDecoratedTop(first) - p.topMargin);
+        } else {
+            range = mRecyclerView.computeVerticalScrollRange();
+            offset = mRecyclerView.computeVerticalScrollOffset();
+        }
+        if (range <= height) {
+            return false;
+        }
+
+        final float thumbHeight = Math.min(height, Math.max(mThumbMinHeight, height * (float) height / range));
+        final float fraction = Math.max(0, Math.min(1, offset / (float) (range - height)));
+        final float top = fraction * (height - thumbHeight);
+        final float right = mRecyclerView.getWidth();
+        mThumbRect.set(right - mThumbWidth, top, right, top + thumbHeight);
+        return true;
+    }
+
+    private void scrollToFraction(float fraction) {
+        final RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        final int itemCount = layoutManager.getItemCount();
+        if (itemCount == 0) return;
+
+        final ItemExtentIndex index = getExtentIndex(layoutManager);
+        int position;
+        int positionOffset;
+        if (index != null) {
+            final long range = index.getTotalExtent() + layoutManager.getPaddingTop() + layoutManager.getPaddingBottom();
+            final long target = (long) (fraction * Math.max(0, range - mRecyclerView.getHeight()));
+            position = index.getPositionAt(target);
+            positionOffset = (int) (index.getOffset(position) - target);
+        } else {
+            position = Math.min(itemCount - 1, (int) (fraction * itemCount));
+            positionOffset = 0;
+        }
+
+        if (position != mDragPosition || index != null) {
+            mDragPosition = position;
+            if (layoutManager instanceof android.support.v7.widget.LinearLayoutManager) {
+                ((android.support.v7.widget.LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, positionOffset);
+            } else {
+                layoutManager.scrollToPosition(position);
+            }
+        }
+        mRecyclerView.invalidate();
+    }
+
+    private String getSectionTitle(int position) {
+        if (position == RecyclerView.NO_POSITION) return null;
+        SectionTitleProvider provider = mSectionTitleProvider;
+        if (provider == null && mRecyclerView.getAdapter() instanceof SectionTitleProvider) {
+            provider = (SectionTitleProvider) mRecyclerView.getAdapter();
+        }
+        if (provider == null) return null;
+        final CharSequence title = provider.getSectionTitle(position);
+        return title == null ? null : title.toString();
+    }
+
+    private static ItemExtentIndex getExtentIndex(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) layoutManager).getExtentIndex();
+        } else if (layoutManager instanceof GridLayoutManager) {
+            return ((GridLayoutManager) layoutManager).getExtentIndex();
+        }
+        return null;
+    }
+
+    /**
+     * Provider of the section titles shown in the bubble next to the thumb while dragging.
+     */
+    public interface SectionTitleProvider {
+
+        /**
+         * Get the title of the section the given item belongs to, e.g. its first letter.
+         * @param position adapter position (header views included)
+         * @return section title or null to hide the bubble
+         */
+        CharSequence getSectionTitle(int position);
+    }
+}
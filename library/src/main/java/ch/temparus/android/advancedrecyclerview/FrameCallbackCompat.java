@@ -0,0 +1,48 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * Choreographer access shared by FrameTask and JankDetector, only loaded on Jelly Bean and above.
+ *
+ * The callbacks are passed around as Object, so the callers do not reference Choreographer classes.
+ *
+ * @author Sandro Lutz
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class FrameCallbackCompat {
+
+    /**
+     * Receiver of the frame callbacks.
+     */
+    interface OnFrameListener {
+
+        /**
+         * Called on the main thread when a new frame is being rendered.
+         * @param frameTimeNanos time at which the rendering of the frame started
+         */
+        void onFrame(long frameTimeNanos);
+    }
+
+    private FrameCallbackCompat() {
+    }
+
+    static Object create(final OnFrameListener listener) {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                listener.onFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    static void post(Object callback) {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+    }
+
+    static void remove(Object callback) {
+        Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+    }
+}
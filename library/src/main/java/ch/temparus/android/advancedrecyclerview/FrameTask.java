@@ -0,0 +1,90 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Task running at most once per frame on the main thread.
+ *
+ * Scheduling an already scheduled task has no effect, so all requests within a frame are coalesced
+ * into a single run. On Jelly Bean and above the task is aligned with the Choreographer,
+ * on older versions it is delayed by the duration of a frame.
+ * The task can be scheduled from any thread.
+ *
+ * @author Sandro Lutz
+ */
+abstract class FrameTask implements Runnable {
+
+    private static final long FRAME_DELAY = 16;
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+    private Object mFrameCallback;
+
+    /**
+     * Called on the main thread once per frame in which the task has been scheduled.
+     */
+    abstract void onFrame();
+
+    /**
+     * Schedule this task for the next frame.
+     */
+    final void schedule() {
+        if (!mScheduled.compareAndSet(false, true)) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrameCallback();
+            } else {
+                sHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        postFrameCallback();
+                    }
+                });
+            }
+        } else {
+            sHandler.postDelayed(this, FRAME_DELAY);
+        }
+    }
+
+    /**
+     * Cancel the next run of this task. Must be called on the main thread.
+     */
+    final void cancel() {
+        if (!mScheduled.compareAndSet(true, false)) return;
+        if (mFrameCallback != null) {
+            FrameCallbackCompat.remove(mFrameCallback);
+        }
+        sHandler.removeCallbacks(this);
+    }
+
+    /**
+     * Check if this task is scheduled.
+     * @return true - if this task runs in the next frame; false - otherwise
+     */
+    final boolean isScheduled() {
+        return mScheduled.get();
+    }
+
+    @Override
+    public final void run() {
+        if (!mScheduled.compareAndSet(true, false)) return;
+        onFrame();
+    }
+
+    private void postFrameCallback() {
+        if (!mScheduled.get()) return;
+        if (mFrameCallback == null) {
+            mFrameCallback = FrameCallbackCompat.create(new FrameCallbackCompat.OnFrameListener() {
+                @Override
+                public void onFrame(long frameTimeNanos) {
+                    run();
+                }
+            });
+        }
+        FrameCallbackCompat.post(mFrameCallback);
+    }
+}
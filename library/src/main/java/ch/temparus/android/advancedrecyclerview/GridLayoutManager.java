@@ -11,6 +11,10 @@ import android.view.View;
  * The padding will only be applied to the items, but not to the scroll view, so that the edge effect will be
  * the full length of the RecyclerView.
  *
+ * With WRAP_CONTENT, every row (column in horizontal orientation) is measured once with the real widths of its
+ * spans and contributes the extent of its largest child. The row extents are cached until the items, the span
+ * configuration or the available cross axis size change, so repeated measure passes do not bind any item.
+ *
  * Known issue: If your are using header views and the RecyclerView has a height of WRAP_CONTENT,
  *              the list starts with the first content item. If you call "adapter.notifyDatasetHasChanged()",
  *              the list behaves as expected.
@@ -28,8 +32,18 @@ public class GridLayoutManager extends android.support.v7.widget.GridLayoutManag
     private int mPaddingRight = 0;
 
     private Dimension mChildDimension = new Dimension(0, 0);
+    private Integer mChildSize;
+    private final RowExtentCache mRowCache = new RowExtentCache();
+    private final Rect mDecorationInsets = new Rect();
+    private int[] mSpanBorders;
+    private final ItemExtentIndex mExtentIndex = new ItemExtentIndex();
+
+    private final HeaderWorkaroundNotifier mNotifier = new HeaderWorkaroundNotifier();
 
-    private RecyclerView.Adapter mAdapter;
+    private RecyclerMetrics mMetrics;
+    private int mMeasuredChildCount;
+
+    private int mSmoothScrollJumpThreshold = SmoothScrollJump.AUTO;
 
     public GridLayoutManager(Context context, int spanCount) {
         super(context, spanCount);
@@ -47,7 +61,7 @@ public class GridLayoutManager extends android.support.v7.widget.GridLayoutManag
     public GridLayoutManager(Context context, int spanCount, RecyclerView.Adapter adapter) {
         super(context, spanCount);
 
-        mAdapter = adapter;
+        mNotifier.setAdapter(adapter);
     }
 
     /**
@@ -92,11 +106,234 @@ public class GridLayoutManager extends android.support.v7.widget.GridLayoutManag
      */
     @SuppressWarnings("unused")
     public void setAdapter(RecyclerView.Adapter adapter) {
-        mAdapter = adapter;
+        mNotifier.setAdapter(adapter);
+    }
+
+    /**
+     * Set the child size if the size of the rows (columns in horizontal orientation) is known and equal for every row.
+     *
+     * The size includes the margins and item decorations of a child. With a child size, measuring with WRAP_CONTENT,
+     * computing the scroll range and evaluating the OverScrollMode ifContentScrolls are pure arithmetic
+     * and do not bind any item.
+     *
+     * Note: If the child size is not set or set to null, the rows will be measured to evaluate
+     *       the total size of the RecyclerView.
+     * @param childSize the size of the rows along the scroll direction
+     */
+    @SuppressWarnings("unused")
+    public void setChildSize(Integer childSize) {
+        if (mChildSize == null ? childSize != null : !mChildSize.equals(childSize)) {
+            mChildSize = childSize;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Returns the child size set with setChildSize(...).
+     * @return size of the rows along the scroll direction or null if the rows are measured
+     */
+    @SuppressWarnings("unused")
+    public Integer getChildSize() {
+        return mChildSize;
+    }
+
+    /**
+     * Clears the child size.
+     */
+    @SuppressWarnings("unused")
+    public void clearChildSize() {
+        setChildSize(null);
+    }
+
+    @Override
+    public void setSpanCount(int spanCount) {
+        super.setSpanCount(spanCount);
+        // called by the super constructor before the caches exist
+        if (mRowCache != null) {
+            mRowCache.clear();
+            mExtentIndex.clear();
+        }
+    }
+
+    @Override
+    public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+        super.setSpanSizeLookup(spanSizeLookup);
+        mRowCache.clear();
+        mExtentIndex.clear();
+    }
+
+    @Override
+    public void setOrientation(int orientation) {
+        super.setOrientation(orientation);
+        // called by the super constructor before the cache exists
+        if (mRowCache != null) {
+            mRowCache.clear();
+        }
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        super.onAdapterChanged(oldAdapter, newAdapter);
+        mRowCache.clear();
+        mExtentIndex.clear();
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        // skipped for the notification of the header workaround at the end of every measure pass
+        if (mNotifier.consumeDataChange(recyclerView)) {
+            mRowCache.clear();
+            mExtentIndex.clear();
+        }
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        mRowCache.invalidateFrom(positionStart);
+        mExtentIndex.onItemsAdded(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        mRowCache.invalidateFrom(positionStart);
+        mExtentIndex.onItemsRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsUpdated(recyclerView, positionStart, itemCount);
+        mRowCache.invalidateFrom(positionStart);
+        mExtentIndex.invalidate(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+        mRowCache.invalidateFrom(Math.min(from, to));
+        mExtentIndex.onItemsMoved(from, to, itemCount);
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        super.onLayoutChildren(recycler, state);
+        recordChildExtents();
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollVerticallyBy(dy, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    /**
+     * Returns the index of the row extents recorded by the measure and layout passes.
+     * The first item of a row holds the extent of the row, all other items hold 0.
+     * @return extent index
+     */
+    ItemExtentIndex getExtentIndex() {
+        mExtentIndex.setItemCount(getItemCount());
+        return mExtentIndex;
+    }
+
+    /**
+     * Store the measured rows and extents of this layout manager in the given snapshot.
+     * @param snapshot snapshot to be filled
+     */
+    void captureSnapshot(LayoutSnapshot snapshot) {
+        recordChildExtents();
+        snapshot.type = LayoutSnapshot.TYPE_GRID;
+        snapshot.orientation = getOrientation();
+        snapshot.spanCount = getSpanCount();
+        snapshot.crossSize = mRowCache.getCrossSize();
+        snapshot.captureExtents(mExtentIndex, getItemCount());
+        final int rowCount = mRowCache.getRowCount();
+        snapshot.rowCount = rowCount;
+        snapshot.rowEndPosition = mRowCache.getEndPosition();
+        snapshot.rowStarts = new int[rowCount];
+        snapshot.rowExtents = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            snapshot.rowStarts[row] = mRowCache.getStart(row);
+            snapshot.rowExtents[row] = mRowCache.getExtent(row);
+        }
+    }
+
+    /**
+     * Restore the measured rows and extents of the given snapshot. The next measure pass takes the restored rows
+     * instead of binding their items, as long as the cross axis size has not changed.
+     * @param snapshot snapshot taken with the same orientation and span count
+     * @return true - if the snapshot has been restored; false - otherwise
+     */
+    boolean restoreSnapshot(LayoutSnapshot snapshot) {
+        if (snapshot.orientation != getOrientation() || snapshot.spanCount != getSpanCount()) {
+            return false;
+        }
+        snapshot.restoreExtents(mExtentIndex);
+        mRowCache.clear();
+        if (snapshot.crossSize >= 0) {
+            mRowCache.setCrossSize(snapshot.crossSize);
+            for (int row = 0; row < snapshot.rowCount; row++) {
+                final int end = row + 1 < snapshot.rowCount ? snapshot.rowStarts[row + 1] : snapshot.rowEndPosition;
+                mRowCache.append(snapshot.rowStarts[row], end, snapshot.rowExtents[row]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the distance in items above which smoothScrollToPosition(...) jumps close to the target
+     * without binding the skipped items and only animates the last screenful.
+     * @param itemCount distance in items, 0 to always animate the whole distance
+     *                  or a negative value for twice the number of visible items (default)
+     */
+    @SuppressWarnings("unused")
+    public void setSmoothScrollJumpThreshold(int itemCount) {
+        mSmoothScrollJumpThreshold = itemCount < 0 ? SmoothScrollJump.AUTO : itemCount;
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+        if (!SmoothScrollJump.jump(this, recyclerView, position, mSmoothScrollJumpThreshold)) {
+            super.smoothScrollToPosition(recyclerView, state, position);
+        }
+    }
+
+    /**
+     * Set the metrics recording the measure passes of this layout manager.
+     * @param metrics metrics or null to disable recording
+     */
+    void setMetrics(RecyclerMetrics metrics) {
+        mMetrics = metrics;
     }
 
     @Override
     public void onMeasure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
+        final boolean traced = TraceSection.begin(TraceSection.GRID_MEASURE);
+        try {
+            if (mMetrics == null) {
+                measure(recycler, state, widthSpec, heightSpec);
+                return;
+            }
+            final long start = System.nanoTime();
+            mMeasuredChildCount = 0;
+            measure(recycler, state, widthSpec, heightSpec);
+            mMetrics.recordMeasure(System.nanoTime() - start, mMeasuredChildCount);
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    private void measure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
         final int widthMode = View.MeasureSpec.getMode(widthSpec);
         final int heightMode = View.MeasureSpec.getMode(heightSpec);
 
@@ -106,8 +343,6 @@ public class GridLayoutManager extends android.support.v7.widget.GridLayoutManag
         final boolean exactWidth = widthMode == View.MeasureSpec.EXACTLY;
         final boolean exactHeight = heightMode == View.MeasureSpec.EXACTLY;
 
-        final int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
-
         if (exactWidth && exactHeight) {
             super.onMeasure(recycler, state, widthSpec, heightSpec);
             return;
@@ -115,164 +350,312 @@ public class GridLayoutManager extends android.support.v7.widget.GridLayoutManag
 
         final boolean vertical = getOrientation() == VERTICAL;
 
-        int width = 0;
-        int height = 0;
+        final int crossMode = vertical ? widthMode : heightMode;
+        final int mainMode = vertical ? heightMode : widthMode;
+        final int crossPadding = vertical ? getPaddingLeft() + getPaddingRight() : getPaddingTop() + getPaddingBottom();
+        final int mainPadding = vertical ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        final int mainSize = vertical ? heightSize : widthSize;
+        int crossSize = vertical ? widthSize : heightSize;
 
         recycler.clear();
 
+        if (crossMode == View.MeasureSpec.UNSPECIFIED) {
+            // no size to distribute over the spans, so the first row / column defines it.
+            crossSize = measureFirstRow(recycler, state, vertical) + crossPadding;
+        }
+
+        final int mainLimit = mainMode == View.MeasureSpec.UNSPECIFIED ? Integer.MAX_VALUE : mainSize - mainPadding;
+        final int mainExtent = measureRows(recycler, state, Math.max(0, crossSize - crossPadding), mainLimit, vertical);
+
+        final int main;
+        if (mainMode == View.MeasureSpec.EXACTLY || (mainMode == View.MeasureSpec.AT_MOST && mainExtent >= mainLimit)) {
+            main = mainSize;
+        } else {
+            main = mainExtent + mainPadding;
+        }
+
+        if (vertical) {
+            setMeasuredDimension(crossSize, main);
+        } else {
+            setMeasuredDimension(main, crossSize);
+        }
+        mNotifier.notifyDataSetChanged();
+    }
+
+    /**
+     * Measure the rows (columns in horizontal orientation) until the given limit is reached.
+     *
+     * Every row is measured once with the real widths of its spans and contributes the extent of its largest
+     * child. Measured rows are cached until the items or the cross axis size change.
+     * @param crossSpace cross axis size available for the spans
+     * @param mainLimit extent after which no more rows are needed
+     * @return extent of the measured rows
+     */
+    private int measureRows(RecyclerView.Recycler recycler, RecyclerView.State state, int crossSpace, int mainLimit, boolean vertical) {
+        final int itemCount = getItemCount();
         final int stateItemCount = state.getItemCount();
-        final int adapterItemCount = getItemCount();
         final int spanCount = getSpanCount();
-        SpanSizeLookup spanSizeLookup = getSpanSizeLookup();
-        int currentSpan = 0;
-        int spanSize;
+        final SpanSizeLookup spanSizeLookup = getSpanSizeLookup();
+        final int[] borders = calculateSpanBorders(crossSpace, spanCount);
+        final int crossUnspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
 
-        // evaluate first row/column size, depending on orientation.
-        for (int i = 0; i < adapterItemCount; i++) {
-            spanSize = spanSizeLookup.getSpanSize(i);
-            if (vertical) {
-                if (currentSpan + spanSize > spanCount) {
-                    break;
-                }
-                if (i < stateItemCount) {
-                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                    // For such items we will use previously calculated dimensions
-                    measureChild(recycler, i, View.MeasureSpec.makeMeasureSpec(widthSize, View.MeasureSpec.AT_MOST), unspecified, mChildDimension);
-                }
-                width += mChildDimension.width;
-                if (width >= widthSize) {
-                    width = widthSize;
-                    break;
-                }
-            } else {
+        if (mChildSize != null) {
+            // uniform rows, no need to bind any item
+            return getUniformContentSize(itemCount);
+        }
+
+        mRowCache.setCrossSize(crossSpace);
+
+        int extent = 0;
+        int row = 0;
+        final int cachedRowCount = mRowCache.getRowCount();
+        while (row < cachedRowCount && extent < mainLimit) {
+            extent += mRowCache.getExtent(row);
+            row++;
+        }
+        if (row < cachedRowCount) {
+            return extent;
+        }
+
+        boolean cacheable = true;
+        int position = mRowCache.getEndPosition();
+        while (position < itemCount && extent < mainLimit) {
+            final int rowStart = position;
+            int currentSpan = 0;
+            int rowSize = 0;
+            while (position < itemCount) {
+                final int spanSize = Math.min(spanSizeLookup.getSpanSize(position), spanCount);
                 if (currentSpan + spanSize > spanCount) {
                     break;
                 }
-                if (i < stateItemCount) {
+                if (position < stateItemCount) {
                     // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                    // For such items we will use previously calculated dimensions
-                    measureChild(recycler, i, unspecified, View.MeasureSpec.makeMeasureSpec(heightSize, View.MeasureSpec.AT_MOST), mChildDimension);
-                }
-                height += mChildDimension.height;
-                if (height >= heightSize) {
-                    height = heightSize;
-                    break;
+                    final int spanExtent = borders[currentSpan + spanSize] - borders[currentSpan];
+                    final int crossSpec = View.MeasureSpec.makeMeasureSpec(spanExtent, View.MeasureSpec.EXACTLY);
+                    if (vertical) {
+                        measureChild(recycler, position, crossSpec, crossUnspecified, mChildDimension);
+                        rowSize = Math.max(rowSize, mChildDimension.height);
+                    } else {
+                        measureChild(recycler, position, crossUnspecified, crossSpec, mChildDimension);
+                        rowSize = Math.max(rowSize, mChildDimension.width);
+                    }
+                } else {
+                    // rows with items unknown to the state must be measured again in the next pass
+                    cacheable = false;
                 }
+                currentSpan += spanSize;
+                position++;
+            }
+            extent += rowSize;
+            if (cacheable) {
+                mRowCache.append(rowStart, position, rowSize);
+                recordRowExtent(rowStart, position, rowSize);
             }
-            currentSpan += spanSize;
         }
+        return extent;
+    }
 
-        if (vertical) {
-            width = (width < 5) ? widthSize : width;
-        } else {
-            height = (height < 5) ? heightSize : height;
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        if (!hasUniformScrollbar(VERTICAL)) {
+            return super.computeVerticalScrollRange(state);
         }
+        return getUniformContentSize(state.getItemCount()) + getPaddingTop() + getPaddingBottom();
+    }
 
-        final int singleSpanDimension = vertical ? widthSize/spanCount : heightSize/spanCount;
-        int rowSize = 0;
-        currentSpan = 0;
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        if (!hasUniformScrollbar(VERTICAL)) {
+            return super.computeVerticalScrollOffset(state);
+        }
+        final View first = getChildAt(0);
+        return Math.max(0, getRowIndex(getPosition(first)) * mChildSize + getPaddingTop() - getDecoratedTop(first));
+    }
 
-        // calculate the other content dimension
-        for (int i = 0; i < adapterItemCount; i++) {
-            spanSize = spanSizeLookup.getSpanSize(i);
-            if (vertical) {
-                if (currentSpan + spanSize > spanCount) {
-                    height += rowSize;
-                    rowSize = 0;
-                    currentSpan = 0;
-                }
-                if (i < stateItemCount) {
-                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                    // For such items we will use previously calculated dimensions
-                    measureChild(recycler, i, View.MeasureSpec.makeMeasureSpec(singleSpanDimension * spanSize, View.MeasureSpec.EXACTLY), unspecified, mChildDimension);
-                }
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return hasUniformScrollbar(VERTICAL) ? getHeight() : super.computeVerticalScrollExtent(state);
+    }
 
-                rowSize = (mChildDimension.height > rowSize) ? mChildDimension.height : rowSize;
-                if (height >= heightSize) {
-                    break;
-                }
-            } else {
-                if (currentSpan + spanSize > spanCount) {
-                    width += rowSize;
-                    rowSize = 0;
-                    currentSpan = 0;
-                }
-                if (i < stateItemCount) {
-                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                    // For such items we will use previously calculated dimensions
-                    measureChild(recycler, i, unspecified, heightSpec, mChildDimension);
-                }
-                rowSize = (mChildDimension.height > rowSize) ? mChildDimension.height : rowSize;
-                if (width >= widthSize) {
-                    break;
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        if (!hasUniformScrollbar(HORIZONTAL)) {
+            return super.computeHorizontalScrollRange(state);
+        }
+        return getUniformContentSize(state.getItemCount()) + getPaddingLeft() + getPaddingRight();
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        if (!hasUniformScrollbar(HORIZONTAL)) {
+            return super.computeHorizontalScrollOffset(state);
+        }
+        final View first = getChildAt(0);
+        return Math.max(0, getRowIndex(getPosition(first)) * mChildSize + getPaddingLeft() - getDecoratedLeft(first));
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return hasUniformScrollbar(HORIZONTAL) ? getWidth() : super.computeHorizontalScrollExtent(state);
+    }
+
+    /**
+     * Returns the size of all rows along the scroll direction if the child size is set.
+     * Used by AdvancedRecyclerView to evaluate the OverScrollMode ifContentScrolls.
+     * @return content size without padding or -1 if the rows have no uniform size
+     */
+    int getUniformContentSize() {
+        return mChildSize == null ? -1 : getUniformContentSize(getItemCount());
+    }
+
+    private int getUniformContentSize(int itemCount) {
+        final int rowCount = itemCount == 0 ? 0 : getRowIndex(itemCount - 1) + 1;
+        return (int) Math.min((long) rowCount * mChildSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the row (column in horizontal orientation) of the given adapter position.
+     * Constant time for the header-aware lookup set by AdvancedRecyclerView, linear for other lookups.
+     */
+    private int getRowIndex(int position) {
+        return getSpanSizeLookup().getSpanGroupIndex(position, getSpanCount());
+    }
+
+    private boolean hasUniformScrollbar(int orientation) {
+        // the arithmetic offset assumes the first child is the one with the lowest position
+        return mChildSize != null && getOrientation() == orientation && getChildCount() > 0
+                && !getReverseLayout() && !getStackFromEnd();
+    }
+
+    /**
+     * Record the extents of the rows of all attached children.
+     */
+    private void recordChildExtents() {
+        final int childCount = getChildCount();
+        if (childCount == 0) return;
+        final boolean vertical = getOrientation() == VERTICAL;
+        final int spanCount = getSpanCount();
+        final SpanSizeLookup spanSizeLookup = getSpanSizeLookup();
+        int rowStart = -1;
+        int rowEnd = -1;
+        int rowSize = 0;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            final int position = getPosition(child);
+            if (rowStart < 0 || position != rowEnd || spanSizeLookup.getSpanIndex(position, spanCount) == 0) {
+                if (rowStart >= 0) {
+                    recordRowExtent(rowStart, rowEnd, rowSize);
                 }
+                rowStart = position;
+                rowSize = 0;
             }
-            currentSpan += spanSize;
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
+            final int size = vertical
+                    ? getDecoratedMeasuredHeight(child) + p.topMargin + p.bottomMargin
+                    : getDecoratedMeasuredWidth(child) + p.leftMargin + p.rightMargin;
+            rowSize = Math.max(rowSize, size);
+            rowEnd = position + 1;
         }
+        recordRowExtent(rowStart, rowEnd, rowSize);
+    }
 
-        if (vertical) {
-            // add last row
-            height += rowSize;
-            if (height > heightSize) {
-                height = heightSize;
-            }
-        } else {
-            // add last column
-            width += rowSize;
-            if (width > widthSize) {
-                width = widthSize;
-            }
+    /**
+     * Record a row in the extent index: its first item holds the row extent, the others hold 0.
+     */
+    private void recordRowExtent(int rowStart, int rowEnd, int rowSize) {
+        mExtentIndex.setItemCount(getItemCount());
+        mExtentIndex.set(rowStart, rowSize);
+        for (int i = rowStart + 1; i < rowEnd; i++) {
+            mExtentIndex.set(i, 0);
         }
+    }
 
-        if ((vertical && height < heightSize) || (!vertical && width < widthSize)) {
-            if (exactWidth) {
-                width = widthSize;
-            } else {
-                width += getPaddingLeft() + getPaddingRight();
-            }
+    /**
+     * Measure the first row (column in horizontal orientation) without constraints along the cross axis.
+     * @return cross axis size of the first row
+     */
+    private int measureFirstRow(RecyclerView.Recycler recycler, RecyclerView.State state, boolean vertical) {
+        final int itemCount = Math.min(getItemCount(), state.getItemCount());
+        final int spanCount = getSpanCount();
+        final SpanSizeLookup spanSizeLookup = getSpanSizeLookup();
+        final int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
 
-            if (exactHeight) {
-                height = heightSize;
-            } else {
-                height += getPaddingTop() + getPaddingBottom();
+        int size = 0;
+        int currentSpan = 0;
+        for (int i = 0; i < itemCount; i++) {
+            final int spanSize = Math.min(spanSizeLookup.getSpanSize(i), spanCount);
+            if (currentSpan + spanSize > spanCount) {
+                break;
             }
+            measureChild(recycler, i, unspecified, unspecified, mChildDimension);
+            size += vertical ? mChildDimension.width : mChildDimension.height;
+            currentSpan += spanSize;
+        }
+        return size;
+    }
 
-            setMeasuredDimension(width, height);
-        } else {
-            super.onMeasure(recycler, state, widthSpec, heightSpec);
+    /**
+     * Distribute the given size over the spans the same way the support GridLayoutManager does.
+     * @param totalSpace size to distribute
+     * @param spanCount number of spans
+     * @return span borders, span i covers [borders[i], borders[i + 1])
+     */
+    private int[] calculateSpanBorders(int totalSpace, int spanCount) {
+        if (mSpanBorders == null || mSpanBorders.length != spanCount + 1) {
+            mSpanBorders = new int[spanCount + 1];
         }
-        if (mAdapter != null) {
-            mAdapter.notifyDataSetChanged();
+        mSpanBorders[0] = 0;
+        final int sizePerSpan = totalSpace / spanCount;
+        final int sizePerSpanRemainder = totalSpace % spanCount;
+        int consumedPixels = 0;
+        int additionalSize = 0;
+        for (int i = 1; i <= spanCount; i++) {
+            int itemSize = sizePerSpan;
+            additionalSize += sizePerSpanRemainder;
+            if (additionalSize > 0 && (spanCount - additionalSize) < sizePerSpanRemainder) {
+                itemSize += 1;
+                additionalSize -= spanCount;
+            }
+            consumedPixels += itemSize;
+            mSpanBorders[i] = consumedPixels;
         }
+        return mSpanBorders;
     }
 
+    /**
+     * Measure a child with the given cross axis spec and store its decorated size in the given dimension.
+     * @param widthSpec width available for the child including its margins and decoration insets
+     * @param heightSpec height available for the child including its margins and decoration insets
+     */
     private void measureChild(RecyclerView.Recycler recycler, int position, int widthSpec, int heightSpec, Dimension dimension) {
-        final View child = recycler.getViewForPosition(position);
+        final boolean traced = TraceSection.begin(TraceSection.GRID_MEASURE_CHILD);
+        try {
+            final View child = recycler.getViewForPosition(position);
+            mMeasuredChildCount++;
 
-        final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
 
-        final int hPadding = getPaddingLeft() + getPaddingRight();
-        final int vPadding = getPaddingTop() + getPaddingBottom();
+            final Rect insets = mDecorationInsets;
+            calculateItemDecorationsForChild(child, insets);
 
-        final int hMargin = p.leftMargin + p.rightMargin;
-        final int vMargin = p.topMargin + p.bottomMargin;
+            final int hMargin = p.leftMargin + p.rightMargin + insets.left + insets.right;
+            final int vMargin = p.topMargin + p.bottomMargin + insets.top + insets.bottom;
 
-        final int hDecoration = getRightDecorationWidth(child) + getLeftDecorationWidth(child);
-        final int vDecoration = getTopDecorationHeight(child) + getBottomDecorationHeight(child);
+            final int childWidthSpec = getChildMeasureSpec(View.MeasureSpec.getSize(widthSpec), hMargin, p.width,
+                    View.MeasureSpec.getMode(widthSpec) == View.MeasureSpec.UNSPECIFIED);
+            final int childHeightSpec = getChildMeasureSpec(View.MeasureSpec.getSize(heightSpec), vMargin, p.height,
+                    View.MeasureSpec.getMode(heightSpec) == View.MeasureSpec.UNSPECIFIED);
 
-        final int childWidthSpec = getChildMeasureSpec(widthSpec, hPadding + hMargin + hDecoration, p.width, canScrollHorizontally());
-        final int childHeightSpec = getChildMeasureSpec(heightSpec, vPadding + vMargin + vDecoration, p.height, canScrollVertically());
+            child.measure(childWidthSpec, childHeightSpec);
 
-        child.measure(childWidthSpec, childHeightSpec);
+            dimension.width = child.getMeasuredWidth() + hMargin;
+            dimension.height = child.getMeasuredHeight() + vMargin;
 
-        Rect rect = new Rect();
-        calculateItemDecorationsForChild(child, rect);
-
-        dimension.width = rect.width() + child.getMeasuredWidth() + p.leftMargin + p.rightMargin;
-        dimension.height = rect.height() + child.getMeasuredHeight() + p.bottomMargin + p.topMargin;
-
-        child.invalidate();
-        recycler.recycleView(child);
+            child.invalidate();
+            recycler.recycleView(child);
+        } finally {
+            TraceSection.end(traced);
+        }
     }
 
     /**
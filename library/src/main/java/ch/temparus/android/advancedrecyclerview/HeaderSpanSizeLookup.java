@@ -0,0 +1,66 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * SpanSizeLookup letting header views and the empty view of an {@link AdvancedRecyclerAdapter} span a whole row.
+ *
+ * Since all other items span a single column, the span index and the row of every position are computed
+ * in constant time instead of iterating over all previous positions.
+ *
+ * With a {@link ConcatAdapter}, the header views and empty views of all its adapters span a whole row
+ * and the span indices are computed by the default implementation.
+ *
+ * @author Sandro Lutz
+ */
+class HeaderSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+    private final RecyclerView mRecyclerView;
+    private final GridLayoutManager mLayoutManager;
+
+    HeaderSpanSizeLookup(RecyclerView recyclerView, GridLayoutManager layoutManager) {
+        mRecyclerView = recyclerView;
+        mLayoutManager = layoutManager;
+    }
+
+    @Override
+    public int getSpanSize(int position) {
+        final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter instanceof ConcatAdapter) {
+            return ((ConcatAdapter) adapter).isFullSpan(position) ? mLayoutManager.getSpanCount() : 1;
+        }
+        return position < getFullSpanCount() ? mLayoutManager.getSpanCount() : 1;
+    }
+
+    @Override
+    public int getSpanIndex(int position, int spanCount) {
+        if (mRecyclerView.getAdapter() instanceof ConcatAdapter) {
+            return super.getSpanIndex(position, spanCount);
+        }
+        final int fullSpanCount = getFullSpanCount();
+        return position < fullSpanCount ? 0 : (position - fullSpanCount) % spanCount;
+    }
+
+    @Override
+    public int getSpanGroupIndex(int position, int spanCount) {
+        if (mRecyclerView.getAdapter() instanceof ConcatAdapter) {
+            return super.getSpanGroupIndex(position, spanCount);
+        }
+        final int fullSpanCount = getFullSpanCount();
+        return position < fullSpanCount ? position : fullSpanCount + (position - fullSpanCount) / spanCount;
+    }
+
+    /**
+     * Returns the number of leading items spanning a whole row, i.e. the header views and the empty view.
+     * @return number of full span items
+     */
+    private int getFullSpanCount() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter instanceof AdvancedRecyclerAdapter) {
+            AdvancedRecyclerAdapter headerAdapter = (AdvancedRecyclerAdapter) adapter;
+            return headerAdapter.getHeaderCount() + (headerAdapter.getContentItemCount() == 0 ? 1 : 0);
+        }
+        return 0;
+    }
+}
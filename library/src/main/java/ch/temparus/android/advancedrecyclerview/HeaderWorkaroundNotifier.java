@@ -0,0 +1,96 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Notifier of the header workaround of LinearLayoutManager and GridLayoutManager.
+ *
+ * The layout managers call notifyDataSetChanged() on the adapter given to their (Context, Adapter) constructor
+ * at the end of every WRAP_CONTENT measure pass. RecyclerView answers this with onItemsChanged(...) in the next
+ * layout, although no item has changed. This notifier observes the adapter, so a layout manager can tell whether
+ * an onItemsChanged(...) call has been caused by a real change of the adapter and keep its caches otherwise.
+ *
+ * @author Sandro Lutz
+ */
+final class HeaderWorkaroundNotifier extends RecyclerView.AdapterDataObserver {
+
+    private RecyclerView.Adapter mAdapter;
+    private boolean mNotifying = false;
+    private boolean mDataChanged = false;
+
+    /**
+     * Set the adapter to be notified after a measure pass.
+     * @param adapter adapter of the connected RecyclerView or null to disable the workaround
+     */
+    void setAdapter(RecyclerView.Adapter adapter) {
+        if (mAdapter == adapter) return;
+        if (mAdapter != null) {
+            mAdapter.unregisterAdapterDataObserver(this);
+        }
+        // onAdapterChanged(...) clears the caches if the adapter of the RecyclerView changes
+        mAdapter = adapter;
+        mDataChanged = false;
+        if (mAdapter != null) {
+            mAdapter.registerAdapterDataObserver(this);
+        }
+    }
+
+    /**
+     * Call notifyDataSetChanged() on the adapter, if there is one.
+     */
+    void notifyDataSetChanged() {
+        if (mAdapter == null) return;
+        mNotifying = true;
+        try {
+            mAdapter.notifyDataSetChanged();
+        } finally {
+            mNotifying = false;
+        }
+    }
+
+    /**
+     * Returns whether the items may have changed since the last call, i.e. whether an onItemsChanged(...) call
+     * has not only been caused by notifyDataSetChanged().
+     *
+     * Range notifications count as changes as well, because RecyclerView drops pending range updates
+     * when it processes a data set change.
+     * @param recyclerView RecyclerView passed to onItemsChanged(...)
+     * @return true - if the caches of the layout manager must be cleared; false - otherwise
+     */
+    boolean consumeDataChange(RecyclerView recyclerView) {
+        if (mAdapter == null || recyclerView.getAdapter() != mAdapter) {
+            // the changes of another adapter are not observed
+            return true;
+        }
+        final boolean changed = mDataChanged;
+        mDataChanged = false;
+        return changed;
+    }
+
+    @Override
+    public void onChanged() {
+        if (!mNotifying) {
+            mDataChanged = true;
+        }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        mDataChanged = true;
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        mDataChanged = true;
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        mDataChanged = true;
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        mDataChanged = true;
+    }
+}
@@ -0,0 +1,207 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Index of the extents of all adapter positions along the scroll direction.
+ *
+ * The layout managers of this library record the extent of every child they measure or lay out. Positions
+ * which have not been measured yet count with the average extent of the measured ones. Mapping a position to
+ * its scroll offset costs O(log n), mapping an offset back to a position O(log^2 n).
+ *
+ * In grids, the first item of a row holds the extent of the whole row and all other items of the row hold 0.
+ *
+ * @author Sandro Lutz
+ */
+final class ItemExtentIndex {
+
+    static final int UNKNOWN = -1;
+
+    private int[] mExtents = new int[16];
+    private int mItemCount = 0;
+
+    // extents of the measured positions (0 for unknown ones) and 1 for every measured position
+    private final PrefixSumTree mKnownExtents = new PrefixSumTree();
+    private final PrefixSumTree mKnownItems = new PrefixSumTree();
+    private int[] mScratch = new int[0];
+    private boolean mDirty = true;
+
+    /**
+     * Returns the number of indexed positions.
+     * @return item count
+     */
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Set the number of indexed positions. New positions are unknown.
+     * @param itemCount item count
+     */
+    void setItemCount(int itemCount) {
+        if (itemCount == mItemCount) return;
+        ensureCapacity(itemCount);
+        if (itemCount > mItemCount) {
+            Arrays.fill(mExtents, mItemCount, itemCount, UNKNOWN);
+        }
+        mItemCount = itemCount;
+        mDirty = true;
+    }
+
+    /**
+     * Returns the recorded extent of the given position.
+     * @param position adapter position
+     * @return extent in pixels or UNKNOWN if the position has not been measured
+     */
+    int get(int position) {
+        return position < 0 || position >= mItemCount ? UNKNOWN : mExtents[position];
+    }
+
+    /**
+     * Record the extent of the given position.
+     * @param position adapter position
+     * @param extent extent in pixels including margins and decorations
+     */
+    void set(int position, int extent) {
+        if (position < 0 || position >= mItemCount || mExtents[position] == extent) return;
+        mExtents[position] = extent;
+        if (!mDirty) {
+            mKnownExtents.set(position, extent);
+            mKnownItems.set(position, 1);
+        }
+    }
+
+    /**
+     * Forget the extents of the given positions, e.g. because their content has changed.
+     * @param positionStart first adapter position
+     * @param itemCount number of positions
+     */
+    void invalidate(int positionStart, int itemCount) {
+        final int end = Math.min(positionStart + itemCount, mItemCount);
+        for (int i = Math.max(positionStart, 0); i < end; i++) {
+            if (mExtents[i] != UNKNOWN) {
+                mExtents[i] = UNKNOWN;
+                if (!mDirty) {
+                    mKnownExtents.set(i, 0);
+                    mKnownItems.set(i, 0);
+                }
+            }
+        }
+    }
+
+    void onItemsAdded(int positionStart, int itemCount) {
+        if (positionStart > mItemCount) return;
+        ensureCapacity(mItemCount + itemCount);
+        System.arraycopy(mExtents, positionStart, mExtents, positionStart + itemCount, mItemCount - positionStart);
+        Arrays.fill(mExtents, positionStart, positionStart + itemCount, UNKNOWN);
+        mItemCount += itemCount;
+        mDirty = true;
+    }
+
+    void onItemsRemoved(int positionStart, int itemCount) {
+        if (positionStart >= mItemCount) return;
+        itemCount = Math.min(itemCount, mItemCount - positionStart);
+        System.arraycopy(mExtents, positionStart + itemCount, mExtents, positionStart, mItemCount - positionStart - itemCount);
+        mItemCount -= itemCount;
+        mDirty = true;
+    }
+
+    void onItemsMoved(int from, int to, int itemCount) {
+        if (from >= mItemCount || to >= mItemCount) return;
+        itemCount = Math.min(itemCount, Math.min(mItemCount - from, mItemCount - to));
+        int[] moved = Arrays.copyOfRange(mExtents, from, from + itemCount);
+        if (from < to) {
+            System.arraycopy(mExtents, from + itemCount, mExtents, from, to - from);
+        } else {
+            System.arraycopy(mExtents, to, mExtents, to + itemCount, from - to);
+        }
+        System.arraycopy(moved, 0, mExtents, to, itemCount);
+        mDirty = true;
+    }
+
+    /**
+     * Forget all extents.
+     */
+    void clear() {
+        Arrays.fill(mExtents, 0, mItemCount, UNKNOWN);
+        mDirty = true;
+    }
+
+    /**
+     * Returns the average extent of the measured positions, used for all unknown positions.
+     * @return average extent in pixels or 0 if no position has been measured yet
+     */
+    float getAverageExtent() {
+        ensureTrees();
+        final long knownItems = mKnownItems.total();
+        return knownItems == 0 ? 0 : mKnownExtents.total() / (float) knownItems;
+    }
+
+    /**
+     * Returns the scroll offset of the start of the given position.
+     * @param position adapter position within [0, getItemCount()]
+     * @return offset in pixels
+     */
+    long getOffset(int position) {
+        ensureTrees();
+        return getOffset(position, getAverageExtent());
+    }
+
+    /**
+     * Returns the estimated extent of all positions.
+     * @return total extent in pixels
+     */
+    long getTotalExtent() {
+        return getOffset(mItemCount);
+    }
+
+    /**
+     * Find the position covering the given scroll offset.
+     * @param offset offset in pixels
+     * @return adapter position within [0, getItemCount()) or -1 if there are no items
+     */
+    int getPositionAt(long offset) {
+        if (mItemCount == 0) return -1;
+        ensureTrees();
+        final float average = getAverageExtent();
+        // last position starting at or before the offset
+        int low = 0;
+        int high = mItemCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getOffset(mid, average) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private long getOffset(int position, float average) {
+        final long knownItems = mKnownItems.sum(position);
+        return mKnownExtents.sum(position) + (long) ((position - knownItems) * (double) average);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mExtents.length) {
+            mExtents = Arrays.copyOf(mExtents, Math.max(capacity, mExtents.length * 2));
+        }
+    }
+
+    private void ensureTrees() {
+        if (!mDirty) return;
+        if (mScratch.length < mItemCount) {
+            mScratch = new int[mExtents.length];
+        }
+        for (int i = 0; i < mItemCount; i++) {
+            mScratch[i] = mExtents[i] == UNKNOWN ? 0 : mExtents[i];
+        }
+        mKnownExtents.build(mScratch, mItemCount);
+        for (int i = 0; i < mItemCount; i++) {
+            mScratch[i] = mExtents[i] == UNKNOWN ? 0 : 1;
+        }
+        mKnownItems.build(mScratch, mItemCount);
+        mDirty = false;
+    }
+}
@@ -0,0 +1,121 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the measured extent and the assigned span of every adapter position of a staggered grid.
+ *
+ * The entries are recorded by the measure and layout passes and shifted with the adapter notifications,
+ * so repeated measure passes (e.g. the ones caused by gap fixing) do not bind the same items again.
+ *
+ * @author Sandro Lutz
+ */
+final class ItemSpanCache {
+
+    static final int UNKNOWN = -1;
+    static final int FULL_SPAN = -2;
+
+    private int[] mExtents = new int[16];
+    private int[] mSpans = new int[16];
+    private int mItemCount = 0;
+
+    /**
+     * Set the number of cached positions. New positions are unknown.
+     * @param itemCount item count
+     */
+    void setItemCount(int itemCount) {
+        if (itemCount == mItemCount) return;
+        ensureCapacity(itemCount);
+        if (itemCount > mItemCount) {
+            Arrays.fill(mExtents, mItemCount, itemCount, UNKNOWN);
+            Arrays.fill(mSpans, mItemCount, itemCount, UNKNOWN);
+        }
+        mItemCount = itemCount;
+    }
+
+    /**
+     * Returns the extent of the given position along the scroll direction.
+     * @param position adapter position
+     * @return extent in pixels or UNKNOWN
+     */
+    int getExtent(int position) {
+        return position < mItemCount ? mExtents[position] : UNKNOWN;
+    }
+
+    /**
+     * Returns the span the given position has been laid out in.
+     * @param position adapter position
+     * @return span index, FULL_SPAN or UNKNOWN
+     */
+    int getSpan(int position) {
+        return position < mItemCount ? mSpans[position] : UNKNOWN;
+    }
+
+    /**
+     * Record the extent of the given position.
+     * @param position adapter position
+     * @param extent extent in pixels including margins and decorations
+     * @param span span index, FULL_SPAN or UNKNOWN to keep the recorded span
+     */
+    void put(int position, int extent, int span) {
+        if (position < 0 || position >= mItemCount) return;
+        mExtents[position] = extent;
+        if (span != UNKNOWN) {
+            mSpans[position] = span;
+        }
+    }
+
+    /**
+     * Forget the given positions, e.g. because their content has changed.
+     * @param positionStart first adapter position
+     * @param itemCount number of positions
+     */
+    void invalidate(int positionStart, int itemCount) {
+        final int start = Math.max(positionStart, 0);
+        final int end = Math.min(positionStart + itemCount, mItemCount);
+        if (start < end) {
+            Arrays.fill(mExtents, start, end, UNKNOWN);
+            Arrays.fill(mSpans, start, end, UNKNOWN);
+        }
+    }
+
+    void onItemsAdded(int positionStart, int itemCount) {
+        if (positionStart > mItemCount) return;
+        ensureCapacity(mItemCount + itemCount);
+        System.arraycopy(mExtents, positionStart, mExtents, positionStart + itemCount, mItemCount - positionStart);
+        System.arraycopy(mSpans, positionStart, mSpans, positionStart + itemCount, mItemCount - positionStart);
+        mItemCount += itemCount;
+        invalidate(positionStart, itemCount);
+    }
+
+    void onItemsRemoved(int positionStart, int itemCount) {
+        if (positionStart >= mItemCount) return;
+        itemCount = Math.min(itemCount, mItemCount - positionStart);
+        final int tail = mItemCount - positionStart - itemCount;
+        System.arraycopy(mExtents, positionStart + itemCount, mExtents, positionStart, tail);
+        System.arraycopy(mSpans, positionStart + itemCount, mSpans, positionStart, tail);
+        mItemCount -= itemCount;
+    }
+
+    void onItemsMoved(int from, int to, int itemCount) {
+        // span assignments of all items in between may change, so they are forgotten
+        final int start = Math.min(from, to);
+        final int end = Math.max(from, to) + itemCount;
+        invalidate(start, end - start);
+    }
+
+    /**
+     * Forget all positions.
+     */
+    void clear() {
+        invalidate(0, mItemCount);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mExtents.length) {
+            final int length = Math.max(capacity, mExtents.length * 2);
+            mExtents = Arrays.copyOf(mExtents, length);
+            mSpans = Arrays.copyOf(mSpans, length);
+        }
+    }
+}
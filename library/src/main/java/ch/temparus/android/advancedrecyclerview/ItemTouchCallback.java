@@ -0,0 +1,150 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.helper.ItemTouchHelper;
+
+/**
+ * ItemTouchHelper callback providing drag and drop and swipe to dismiss for the content items of a {@link BaseAdapter}.
+ *
+ * Header views and the empty view can neither be dragged nor swiped and content items can't be dropped onto them.
+ * The moves of a drag are only applied to the view while dragging and committed to the adapter
+ * with a single call of BaseAdapter.onContentItemMoved(int, int) once the item has been dropped.
+ *
+ * @author Sandro Lutz
+ */
+public class ItemTouchCallback extends ItemTouchHelper.Callback {
+
+    private static final long AUTO_SCROLL_RAMP_DURATION = 500;
+    private static final int MAX_AUTO_SCROLL_DP = 16;
+
+    private final RecyclerView mRecyclerView;
+    private boolean mDragEnabled = false;
+    private boolean mSwipeEnabled = false;
+    private int mMaxAutoScroll = -1;
+
+    /**
+     * @param recyclerView RecyclerView connected with a BaseAdapter
+     */
+    public ItemTouchCallback(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Enable or disable drag and drop of the content items.
+     * @param enabled true - if content items can be dragged; false - otherwise
+     */
+    public void setDragEnabled(boolean enabled) {
+        mDragEnabled = enabled;
+    }
+
+    /**
+     * Enable or disable swipe to dismiss of the content items.
+     * @param enabled true - if content items can be swiped; false - otherwise
+     */
+    public void setSwipeEnabled(boolean enabled) {
+        mSwipeEnabled = enabled;
+    }
+
+    @Override
+    public boolean isLongPressDragEnabled() {
+        return mDragEnabled;
+    }
+
+    @Override
+    public boolean isItemViewSwipeEnabled() {
+        return mSwipeEnabled;
+    }
+
+    @Override
+    public int getMovementFlags(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+        BaseAdapter adapter = getAdapter();
+        int position = getContentPosition(adapter, viewHolder);
+        if (position < 0) {
+            return 0;
+        }
+
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        boolean grid = layoutManager instanceof android.support.v7.widget.GridLayoutManager
+                || layoutManager instanceof android.support.v7.widget.StaggeredGridLayoutManager;
+        boolean vertical = layoutManager == null || layoutManager.canScrollVertically();
+
+        int dragFlags = 0;
+        if (mDragEnabled && adapter.isContentMovable(position)) {
+            if (grid) {
+                dragFlags = ItemTouchHelper.UP | ItemTouchHelper.DOWN | ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT;
+            } else {
+                dragFlags = vertical ? ItemTouchHelper.UP | ItemTouchHelper.DOWN : ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT;
+            }
+        }
+        int swipeFlags = 0;
+        if (mSwipeEnabled && adapter.isContentSwipeable(position)) {
+            swipeFlags = vertical ? ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT : ItemTouchHelper.UP | ItemTouchHelper.DOWN;
+        }
+        return makeMovementFlags(dragFlags, swipeFlags);
+    }
+
+    @Override
+    public boolean canDropOver(RecyclerView recyclerView, RecyclerView.ViewHolder current, RecyclerView.ViewHolder target) {
+        BaseAdapter adapter = getAdapter();
+        int position = getContentPosition(adapter, target);
+        return position >= 0 && adapter.isContentMovable(position);
+    }
+
+    @Override
+    public boolean onMove(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder, RecyclerView.ViewHolder target) {
+        BaseAdapter adapter = getAdapter();
+        if (adapter == null) {
+            return false;
+        }
+        adapter.moveDraggedItem(viewHolder.getAdapterPosition(), target.getAdapterPosition());
+        return true;
+    }
+
+    @Override
+    public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
+        BaseAdapter adapter = getAdapter();
+        int position = getContentPosition(adapter, viewHolder);
+        if (position >= 0) {
+            adapter.onContentItemSwiped(position, direction);
+        }
+    }
+
+    @Override
+    public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+        super.clearView(recyclerView, viewHolder);
+        BaseAdapter adapter = getAdapter();
+        if (adapter != null) {
+            adapter.commitDraggedItem();
+        }
+    }
+
+    @Override
+    public int interpolateOutOfBoundsScroll(RecyclerView recyclerView, int viewSize, int viewSizeOutOfBounds,
+                                            int totalSize, long msSinceStartScroll) {
+        if (mMaxAutoScroll < 0) {
+            mMaxAutoScroll = (int) (MAX_AUTO_SCROLL_DP * recyclerView.getResources().getDisplayMetrics().density + 0.5f);
+        }
+        final int direction = viewSizeOutOfBounds < 0 ? -1 : 1;
+        // ease in with the distance out of bounds and ramp up during the first milliseconds
+        final float outOfBoundsRatio = Math.min(1f, (float) Math.abs(viewSizeOutOfBounds) / viewSize);
+        final float timeRatio = Math.min(1f, (float) msSinceStartScroll / AUTO_SCROLL_RAMP_DURATION);
+        final int scroll = (int) (mMaxAutoScroll * outOfBoundsRatio * outOfBoundsRatio * timeRatio);
+        return direction * Math.max(1, scroll);
+    }
+
+    private BaseAdapter getAdapter() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        return adapter instanceof BaseAdapter ? (BaseAdapter) adapter : null;
+    }
+
+    private int getContentPosition(BaseAdapter adapter, RecyclerView.ViewHolder viewHolder) {
+        if (adapter == null || adapter.getContentItemCount() == 0) {
+            return -1;
+        }
+        int position = viewHolder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return -1;
+        }
+        return adapter.getRealPosition(position);
+    }
+}
@@ -0,0 +1,352 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.Build;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Diagnostic tool attributing slow scroll frames to the adapter positions and view types created or bound in them.
+ *
+ * While the connected {@link AdvancedRecyclerView} is scrolling, the duration of every frame is measured. All
+ * ViewHolders created or bound by a {@link BaseAdapter} within a frame exceeding the frame budget are recorded
+ * in a bounded ring buffer. The summary methods aggregate the slow frames by view type.
+ *
+ * Set it with AdvancedRecyclerView.setJankDetector(...).
+ *
+ * Note: Frame durations are only available on Jelly Bean and above. On older versions nothing is recorded.
+ *
+ * @author Sandro Lutz
+ */
+public class JankDetector {
+
+    private static final int DEFAULT_CAPACITY = 128;
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667;
+
+    private final int mCapacity;
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    // events of the current frame
+    private int mFrameEventCount = 0;
+    private int[] mFramePositions = new int[16];
+    private int[] mFrameViewTypes = new int[16];
+    private long[] mFrameDurations = new long[16];
+    private boolean[] mFrameCreated = new boolean[16];
+
+    // ring buffer of the events of slow frames
+    private final long[] mRecordFrameDurations;
+    private final int[] mRecordPositions;
+    private final int[] mRecordViewTypes;
+    private final long[] mRecordDurations;
+    private final boolean[] mRecordCreated;
+    private int mRecordStart = 0;
+    private int mRecordCount = 0;
+
+    // aggregated slow frame events by view type: {count, total duration}
+    private final SparseArray<long[]> mViewTypeStats = new SparseArray<>();
+    private long mBindCount = 0;
+    private long mBindNanos = 0;
+    private long mFrameCount = 0;
+    private long mSlowFrameCount = 0;
+
+    private boolean mScrolling = false;
+    private long mLastFrameTimeNanos = 0;
+    private Object mFrameCallback;
+
+    public JankDetector() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of recorded create and bind events of slow frames
+     */
+    public JankDetector(int capacity) {
+        mCapacity = capacity;
+        mRecordFrameDurations = new long[capacity];
+        mRecordPositions = new int[capacity];
+        mRecordViewTypes = new int[capacity];
+        mRecordDurations = new long[capacity];
+        mRecordCreated = new boolean[capacity];
+    }
+
+    /**
+     * Set the frame budget. Frames taking longer are recorded as slow frames.
+     * @param frameBudgetMillis frame budget in milliseconds (default: 16.67ms)
+     */
+    @SuppressWarnings("unused")
+    public void setFrameBudget(float frameBudgetMillis) {
+        mFrameBudgetNanos = (long) (frameBudgetMillis * 1000000);
+    }
+
+    /**
+     * Returns the number of frames observed while scrolling.
+     * @return number of frames
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the number of frames exceeding the frame budget while scrolling.
+     * @return number of slow frames
+     */
+    public long getSlowFrameCount() {
+        return mSlowFrameCount;
+    }
+
+    /**
+     * Returns the average duration of all binds while scrolling, including those in frames within budget.
+     * @return average bind duration in nanoseconds
+     */
+    public long getAverageBindNanos() {
+        return mBindCount == 0 ? 0 : mBindNanos / mBindCount;
+    }
+
+    /**
+     * Get the recorded create and bind events of slow frames, oldest first.
+     * @return recorded events (at most the capacity of this detector)
+     */
+    public List<Record> getRecords() {
+        List<Record> records = new ArrayList<>(mRecordCount);
+        for (int i = 0; i < mRecordCount; i++) {
+            int index = (mRecordStart + i) % mCapacity;
+            records.add(new Record(mRecordFrameDurations[index], mRecordPositions[index], mRecordViewTypes[index],
+                    mRecordDurations[index], mRecordCreated[index]));
+        }
+        return records;
+    }
+
+    /**
+     * Get the view types which took most of the time within slow frames.
+     * @param count maximum number of view types
+     * @return summaries of the view types, sorted by the total time spent in slow frames
+     */
+    public List<ViewTypeSummary> getTopViewTypes(int count) {
+        List<ViewTypeSummary> summaries = new ArrayList<>(mViewTypeStats.size());
+        for (int i = 0; i < mViewTypeStats.size(); i++) {
+            long[] stats = mViewTypeStats.valueAt(i);
+            summaries.add(new ViewTypeSummary(mViewTypeStats.keyAt(i), stats[0], stats[1]));
+        }
+        Collections.sort(summaries, new Comparator<ViewTypeSummary>() {
+            @Override
+            public int compare(ViewTypeSummary lhs, ViewTypeSummary rhs) {
+                return lhs.mTotalNanos < rhs.mTotalNanos ? 1 : (lhs.mTotalNanos == rhs.mTotalNanos ? 0 : -1);
+            }
+        });
+        return summaries.size() > count ? new ArrayList<>(summaries.subList(0, count)) : summaries;
+    }
+
+    /**
+     * Clear all recorded data.
+     */
+    public void reset() {
+        mFrameEventCount = 0;
+        mRecordStart = 0;
+        mRecordCount = 0;
+        mViewTypeStats.clear();
+        mBindCount = 0;
+        mBindNanos = 0;
+        mFrameCount = 0;
+        mSlowFrameCount = 0;
+    }
+
+    void recordCreate(int viewType, long durationNanos) {
+        if (mScrolling) {
+            addFrameEvent(RecyclerView.NO_POSITION, viewType, durationNanos, true);
+        }
+    }
+
+    void recordBind(int viewType, int position, long durationNanos) {
+        if (mScrolling) {
+            mBindCount++;
+            mBindNanos += durationNanos;
+            addFrameEvent(position, viewType, durationNanos, false);
+        }
+    }
+
+    /**
+     * Start or stop observing frames.
+     * @param scrolling true - if the connected view is scrolling; false - otherwise
+     */
+    void setScrolling(boolean scrolling) {
+        if (mScrolling == scrolling || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) return;
+        mScrolling = scrolling;
+        mFrameEventCount = 0;
+        mLastFrameTimeNanos = 0;
+        if (mFrameCallback == null) {
+            mFrameCallback = FrameCallbackCompat.create(new FrameCallbackCompat.OnFrameListener() {
+                @Override
+                public void onFrame(long frameTimeNanos) {
+                    JankDetector.this.onFrame(frameTimeNanos);
+                }
+            });
+        }
+        if (scrolling) {
+            FrameCallbackCompat.post(mFrameCallback);
+        } else {
+            FrameCallbackCompat.remove(mFrameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            final long frameDuration = frameTimeNanos - mLastFrameTimeNanos;
+            mFrameCount++;
+            if (frameDuration > mFrameBudgetNanos) {
+                mSlowFrameCount++;
+                for (int i = 0; i < mFrameEventCount; i++) {
+                    addRecord(frameDuration, i);
+                }
+            }
+        }
+        mFrameEventCount = 0;
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mScrolling) {
+            FrameCallbackCompat.post(mFrameCallback);
+        }
+    }
+
+    private void addFrameEvent(int position, int viewType, long durationNanos, boolean created) {
+        if (mFrameEventCount == mFramePositions.length) {
+            int length = mFrameEventCount * 2;
+            mFramePositions = Arrays.copyOf(mFramePositions, length);
+            mFrameViewTypes = Arrays.copyOf(mFrameViewTypes, length);
+            mFrameDurations = Arrays.copyOf(mFrameDurations, length);
+            mFrameCreated = Arrays.copyOf(mFrameCreated, length);
+        }
+        mFramePositions[mFrameEventCount] = position;
+        mFrameViewTypes[mFrameEventCount] = viewType;
+        mFrameDurations[mFrameEventCount] = durationNanos;
+        mFrameCreated[mFrameEventCount] = created;
+        mFrameEventCount++;
+    }
+
+    private void addRecord(long frameDuration, int event) {
+        int index;
+        if (mRecordCount < mCapacity) {
+            index = (mRecordStart + mRecordCount) % mCapacity;
+            mRecordCount++;
+        } else {
+            // overwrite the oldest record
+            index = mRecordStart;
+            mRecordStart = (mRecordStart + 1) % mCapacity;
+        }
+        mRecordFrameDurations[index] = frameDuration;
+        mRecordPositions[index] = mFramePositions[event];
+        mRecordViewTypes[index] = mFrameViewTypes[event];
+        mRecordDurations[index] = mFrameDurations[event];
+        mRecordCreated[index] = mFrameCreated[event];
+
+        long[] stats = mViewTypeStats.get(mFrameViewTypes[event]);
+        if (stats == null) {
+            stats = new long[2];
+            mViewTypeStats.put(mFrameViewTypes[event], stats);
+        }
+        stats[0]++;
+        stats[1] += mFrameDurations[event];
+    }
+
+    /**
+     * ViewHolder created or bound within a slow frame.
+     */
+    public static final class Record {
+
+        private final long mFrameDurationNanos;
+        private final int mPosition;
+        private final int mViewType;
+        private final long mDurationNanos;
+        private final boolean mCreated;
+
+        private Record(long frameDurationNanos, int position, int viewType, long durationNanos, boolean created) {
+            mFrameDurationNanos = frameDurationNanos;
+            mPosition = position;
+            mViewType = viewType;
+            mDurationNanos = durationNanos;
+            mCreated = created;
+        }
+
+        /**
+         * @return duration of the slow frame in nanoseconds
+         */
+        public long getFrameDurationNanos() {
+            return mFrameDurationNanos;
+        }
+
+        /**
+         * @return adapter position (header views included) or -1 if a ViewHolder has been created
+         */
+        public int getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * @return view type of the ViewHolder
+         */
+        public int getViewType() {
+            return mViewType;
+        }
+
+        /**
+         * @return duration of onCreateViewHolder(...) or onBindViewHolder(...) in nanoseconds
+         */
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        /**
+         * @return true - if the ViewHolder has been created; false - if it has been bound
+         */
+        public boolean isCreated() {
+            return mCreated;
+        }
+    }
+
+    /**
+     * Time spent creating and binding ViewHolders of a view type within slow frames.
+     */
+    public static final class ViewTypeSummary {
+
+        private final int mViewType;
+        private final long mCount;
+        private final long mTotalNanos;
+
+        private ViewTypeSummary(int viewType, long count, long totalNanos) {
+            mViewType = viewType;
+            mCount = count;
+            mTotalNanos = totalNanos;
+        }
+
+        /**
+         * @return view type
+         */
+        public int getViewType() {
+            return mViewType;
+        }
+
+        /**
+         * @return number of ViewHolders created or bound within slow frames
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return total duration in nanoseconds
+         */
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        /**
+         * @return average duration in nanoseconds
+         */
+        public long getAverageNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Compact snapshot of the measured layout of the layout managers of this library.
+ *
+ * The snapshot contains the scroll anchor (first visible position and its offset), the measured extent of every
+ * known position, the measured rows of a grid and the spans of a staggered grid. It is written to a binary file
+ * and mapped into memory when it is read. Restoring a snapshot fills the caches of the layout manager, so the
+ * first layout after a cold start neither measures nor binds the rows which have been measured before and
+ * starts at the saved scroll position.
+ *
+ * A snapshot is only valid for the data it has been taken from. Every snapshot is therefore saved with a data
+ * version chosen by the app (e.g. a hash or the modification time of the data) and only restored if the data
+ * version matches. Snapshots of another format version, another layout manager or another item count are
+ * ignored as well.
+ *
+ * Use it with AdvancedRecyclerView.saveLayoutSnapshot(...) and restoreLayoutSnapshot(...).
+ *
+ * @author Sandro Lutz
+ */
+public final class LayoutSnapshot {
+
+    private static final int MAGIC = 0x41525653; // "ARVS"
+    private static final int FORMAT_VERSION = 1;
+
+    static final int TYPE_LINEAR = 1;
+    static final int TYPE_GRID = 2;
+    static final int TYPE_STAGGERED_GRID = 3;
+
+    private long mDataVersion;
+    int type;
+    int orientation;
+    int spanCount;
+    int anchorPosition = RecyclerView.NO_POSITION;
+    int anchorOffset;
+    int crossSize = -1;
+    int crossExtent;
+    int itemCount;
+    // extent of every position or ItemExtentIndex.UNKNOWN
+    int[] extents = new int[0];
+    // staggered grid: span of every position or ItemSpanCache.UNKNOWN / FULL_SPAN
+    int[] spans = new int[0];
+    // grid: measured rows
+    int rowCount;
+    int rowEndPosition;
+    int[] rowStarts = new int[0];
+    int[] rowExtents = new int[0];
+
+    LayoutSnapshot() {
+    }
+
+    /**
+     * Take a snapshot of the given layout manager.
+     * @param layoutManager LinearLayoutManager, GridLayoutManager or StaggeredGridLayoutManager of this library
+     * @param dataVersion version of the adapter data
+     * @return snapshot or null if the layout manager is not supported
+     */
+    public static LayoutSnapshot capture(RecyclerView.LayoutManager layoutManager, long dataVersion) {
+        final LayoutSnapshot snapshot = new LayoutSnapshot();
+        snapshot.mDataVersion = dataVersion;
+        if (layoutManager instanceof GridLayoutManager) {
+            ((GridLayoutManager) layoutManager).captureSnapshot(snapshot);
+        } else if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).captureSnapshot(snapshot);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) layoutManager).captureSnapshot(snapshot);
+        } else {
+            return null;
+        }
+        snapshot.captureAnchor(layoutManager);
+        return snapshot;
+    }
+
+    /**
+     * Read a snapshot written with writeTo(File).
+     * @param file snapshot file
+     * @param dataVersion current version of the adapter data
+     * @return snapshot or null if the file does not exist, is invalid or has been taken from another data version
+     * @throws IOException if the file cannot be read
+     */
+    public static LayoutSnapshot read(File file, long dataVersion) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(buffer, dataVersion);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Returns the data version this snapshot has been taken from.
+     * @return data version
+     */
+    @SuppressWarnings("unused")
+    public long getDataVersion() {
+        return mDataVersion;
+    }
+
+    /**
+     * Write this snapshot to the given file. The file is replaced atomically.
+     * @param file snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(File file) throws IOException {
+        final File temp = new File(file.getPath() + ".tmp");
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(mDataVersion);
+            output.writeInt(type);
+            output.writeInt(orientation);
+            output.writeInt(spanCount);
+            output.writeInt(anchorPosition);
+            output.writeInt(anchorOffset);
+            output.writeInt(crossSize);
+            output.writeInt(crossExtent);
+            output.writeInt(itemCount);
+            writeInts(output, extents, itemCount);
+            if (type == TYPE_STAGGERED_GRID) {
+                writeInts(output, spans, itemCount);
+            } else if (type == TYPE_GRID) {
+                output.writeInt(rowCount);
+                output.writeInt(rowEndPosition);
+                writeInts(output, rowStarts, rowCount);
+                writeInts(output, rowExtents, rowCount);
+            }
+        } finally {
+            output.close();
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Restore this snapshot into the given layout manager and scroll to the saved anchor.
+     *
+     * Note: The adapter has to be connected already, otherwise the item count does not match.
+     * @param layoutManager layout manager of the same type and configuration the snapshot has been taken from
+     * @return true - if the snapshot has been restored; false - if it does not match the layout manager
+     */
+    public boolean restore(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager.getItemCount() != itemCount) {
+            return false;
+        }
+        final boolean restored;
+        if (layoutManager instanceof GridLayoutManager) {
+            restored = type == TYPE_GRID && ((GridLayoutManager) layoutManager).restoreSnapshot(this);
+        } else if (layoutManager instanceof LinearLayoutManager) {
+            restored = type == TYPE_LINEAR && ((LinearLayoutManager) layoutManager).restoreSnapshot(this);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            restored = type == TYPE_STAGGERED_GRID && ((StaggeredGridLayoutManager) layoutManager).restoreSnapshot(this);
+        } else {
+            restored = false;
+        }
+        if (restored && anchorPosition >= 0 && anchorPosition < itemCount) {
+            if (layoutManager instanceof android.support.v7.widget.LinearLayoutManager) {
+                ((android.support.v7.widget.LinearLayoutManager) layoutManager).scrollToPositionWithOffset(anchorPosition, anchorOffset);
+            } else {
+                ((android.support.v7.widget.StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(anchorPosition, anchorOffset);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Copy the extents of the given index into this snapshot.
+     * @param index extent index of the layout manager
+     * @param count item count of the layout manager
+     */
+    void captureExtents(ItemExtentIndex index, int count) {
+        index.setItemCount(count);
+        itemCount = count;
+        extents = new int[count];
+        for (int i = 0; i < count; i++) {
+            extents[i] = index.get(i);
+        }
+    }
+
+    /**
+     * Replace the extents of the given index with the ones of this snapshot.
+     * @param index extent index of the layout manager
+     */
+    void restoreExtents(ItemExtentIndex index) {
+        index.clear();
+        index.setItemCount(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            if (extents[i] != ItemExtentIndex.UNKNOWN) {
+                index.set(i, extents[i]);
+            }
+        }
+    }
+
+    /**
+     * Store the first visible position and the offset of its start from the padded start of the view.
+     */
+    private void captureAnchor(RecyclerView.LayoutManager layoutManager) {
+        final boolean vertical = orientation == RecyclerView.VERTICAL;
+        anchorPosition = RecyclerView.NO_POSITION;
+        for (int i = 0; i < layoutManager.getChildCount(); i++) {
+            final View child = layoutManager.getChildAt(i);
+            final int position = layoutManager.getPosition(child);
+            if (anchorPosition == RecyclerView.NO_POSITION || position < anchorPosition) {
+                anchorPosition = position;
+                anchorOffset = vertical
+                        ? layoutManager.getDecoratedTop(child) - layoutManager.getPaddingTop()
+                        : layoutManager.getDecoratedLeft(child) - layoutManager.getPaddingLeft();
+            }
+        }
+    }
+
+    private static LayoutSnapshot parse(ByteBuffer buffer, long dataVersion) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            final LayoutSnapshot snapshot = new LayoutSnapshot();
+            snapshot.mDataVersion = buffer.getLong();
+            if (snapshot.mDataVersion != dataVersion) {
+                return null;
+            }
+            snapshot.type = buffer.getInt();
+            snapshot.orientation = buffer.getInt();
+            snapshot.spanCount = buffer.getInt();
+            snapshot.anchorPosition = buffer.getInt();
+            snapshot.anchorOffset = buffer.getInt();
+            snapshot.crossSize = buffer.getInt();
+            snapshot.crossExtent = buffer.getInt();
+            snapshot.itemCount = buffer.getInt();
+            snapshot.extents = readInts(buffer, snapshot.itemCount);
+            if (snapshot.type == TYPE_STAGGERED_GRID) {
+                snapshot.spans = readInts(buffer, snapshot.itemCount);
+            } else if (snapshot.type == TYPE_GRID) {
+                snapshot.rowCount = buffer.getInt();
+                snapshot.rowEndPosition = buffer.getInt();
+                snapshot.rowStarts = readInts(buffer, snapshot.rowCount);
+                snapshot.rowExtents = readInts(buffer, snapshot.rowCount);
+            }
+            return snapshot;
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // negative counts of a corrupt file
+            return null;
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        final int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            output.writeInt(values[i]);
+        }
+    }
+}
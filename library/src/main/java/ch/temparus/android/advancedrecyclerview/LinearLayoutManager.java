@@ -30,7 +30,20 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
     private Dimension mChildDimension = new Dimension(0, 0);
     private Integer mChildSize;
 
-    private RecyclerView.Adapter mAdapter;
+    private final HeaderWorkaroundNotifier mNotifier = new HeaderWorkaroundNotifier();
+
+    private RecyclerMetrics mMetrics;
+    private int mMeasuredChildCount;
+
+    private int mSmoothScrollJumpThreshold = SmoothScrollJump.AUTO;
+
+    private final ItemExtentIndex mExtentIndex = new ItemExtentIndex();
+    // cross axis size of the last measure pass and the cross axis extent of its items
+    private int mMeasuredCrossSize = -1;
+    private int mMeasuredCrossExtent;
+    // cross axis size of a restored LayoutSnapshot, its extents are used instead of measuring the items
+    private int mSnapshotCrossSize = -1;
+    private int mSnapshotCrossExtent;
 
     @SuppressWarnings("unused")
     public LinearLayoutManager(Context context) {
@@ -50,7 +63,7 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
     public LinearLayoutManager(Context context, RecyclerView.Adapter adapter) {
         super(context);
 
-        mAdapter = adapter;
+        mNotifier.setAdapter(adapter);
     }
 
     @SuppressWarnings("unused")
@@ -100,25 +113,37 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
      */
     @SuppressWarnings("unused")
     public void setAdapter(RecyclerView.Adapter adapter) {
-        mAdapter = adapter;
+        mNotifier.setAdapter(adapter);
     }
 
     /**
-     * Set the child size if you use WRAP_CONTENT and the size of the items displayed in the
-     * RecyclerView is known and equal for every item.
+     * Set the child size if the size of the items displayed in the RecyclerView is known and equal for every item.
+     *
+     * The size includes the margins and item decorations of a child. With a child size, measuring with WRAP_CONTENT,
+     * computing the scroll range and evaluating the OverScrollMode ifContentScrolls are pure arithmetic
+     * and do not bind any item.
      *
-     * Note: If the child size is not set or set to null, all items will be measured to evaluate
-     *       the total sizeof the RecyclerView.
-     * @param childSize the size of the child views / adapter items
+     * Note: If the child size is not set or set to null, the items will be measured to evaluate
+     *       the total size of the RecyclerView.
+     * @param childSize the size of the child views / adapter items along the scroll direction
      */
     @SuppressWarnings("unused")
     public void setChildSize(Integer childSize) {
-        if (!mChildSize.equals(childSize)) {
+        if (mChildSize == null ? childSize != null : !mChildSize.equals(childSize)) {
             mChildSize = childSize;
             requestLayout();
         }
     }
 
+    /**
+     * Returns the child size set with setChildSize(...).
+     * @return size of the items along the scroll direction or null if the items are measured
+     */
+    @SuppressWarnings("unused")
+    public Integer getChildSize() {
+        return mChildSize;
+    }
+
     /**
      * Clears the child size.
      */
@@ -138,8 +163,149 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
         super.setOrientation(orientation);
     }
 
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        super.onLayoutChildren(recycler, state);
+        recordChildExtents();
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollVerticallyBy(dy, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        recordChildExtents();
+        return scrolled;
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        super.onAdapterChanged(oldAdapter, newAdapter);
+        mExtentIndex.clear();
+        mSnapshotCrossSize = -1;
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        // skipped for the notification of the header workaround at the end of every measure pass
+        if (mNotifier.consumeDataChange(recyclerView)) {
+            mExtentIndex.clear();
+            mSnapshotCrossSize = -1;
+        }
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        mExtentIndex.onItemsAdded(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        mExtentIndex.onItemsRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsUpdated(recyclerView, positionStart, itemCount);
+        mExtentIndex.invalidate(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+        mExtentIndex.onItemsMoved(from, to, itemCount);
+    }
+
+    /**
+     * Returns the index of the item extents recorded by the measure and layout passes.
+     * @return extent index
+     */
+    ItemExtentIndex getExtentIndex() {
+        mExtentIndex.setItemCount(getItemCount());
+        return mExtentIndex;
+    }
+
+    /**
+     * Store the measured extents of this layout manager in the given snapshot.
+     * @param snapshot snapshot to be filled
+     */
+    void captureSnapshot(LayoutSnapshot snapshot) {
+        recordChildExtents();
+        snapshot.type = LayoutSnapshot.TYPE_LINEAR;
+        snapshot.orientation = getOrientation();
+        snapshot.crossSize = mMeasuredCrossSize;
+        snapshot.crossExtent = mMeasuredCrossExtent;
+        snapshot.captureExtents(mExtentIndex, getItemCount());
+    }
+
+    /**
+     * Restore the measured extents of the given snapshot. The next measure pass takes the extents of the
+     * restored positions instead of binding them, as long as the cross axis size has not changed.
+     * @param snapshot snapshot taken with the same orientation
+     * @return true - if the snapshot has been restored; false - otherwise
+     */
+    boolean restoreSnapshot(LayoutSnapshot snapshot) {
+        if (snapshot.orientation != getOrientation()) {
+            return false;
+        }
+        snapshot.restoreExtents(mExtentIndex);
+        mSnapshotCrossSize = snapshot.crossSize;
+        mSnapshotCrossExtent = snapshot.crossExtent;
+        return true;
+    }
+
+    /**
+     * Set the distance in items above which smoothScrollToPosition(...) jumps close to the target
+     * without binding the skipped items and only animates the last screenful.
+     * @param itemCount distance in items, 0 to always animate the whole distance
+     *                  or a negative value for twice the number of visible items (default)
+     */
+    @SuppressWarnings("unused")
+    public void setSmoothScrollJumpThreshold(int itemCount) {
+        mSmoothScrollJumpThreshold = itemCount < 0 ? SmoothScrollJump.AUTO : itemCount;
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+        if (!SmoothScrollJump.jump(this, recyclerView, position, mSmoothScrollJumpThreshold)) {
+            super.smoothScrollToPosition(recyclerView, state, position);
+        }
+    }
+
+    /**
+     * Set the metrics recording the measure passes of this layout manager.
+     * @param metrics metrics or null to disable recording
+     */
+    void setMetrics(RecyclerMetrics metrics) {
+        mMetrics = metrics;
+    }
+
     @Override
     public void onMeasure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
+        final boolean traced = TraceSection.begin(TraceSection.LINEAR_MEASURE);
+        try {
+            if (mMetrics == null) {
+                measure(recycler, state, widthSpec, heightSpec);
+                return;
+            }
+            final long start = System.nanoTime();
+            mMeasuredChildCount = 0;
+            measure(recycler, state, widthSpec, heightSpec);
+            mMetrics.recordMeasure(System.nanoTime() - start, mMeasuredChildCount);
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    private void measure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
         final int widthMode = View.MeasureSpec.getMode(widthSpec);
         final int heightMode = View.MeasureSpec.getMode(heightSpec);
 
@@ -167,14 +333,26 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
 
         final int stateItemCount = state.getItemCount();
         final int adapterItemCount = getItemCount();
+        if (mChildSize != null) {
+            // uniform items, no need to bind any of them
+            final int contentSize = getUniformContentSize(adapterItemCount);
+            if (vertical) {
+                width = mChildDimension.width;
+                height = contentSize;
+            } else {
+                width = contentSize;
+                height = mChildDimension.height;
+            }
+        }
+
         // adapter always contains actual data while state might contain old data.
         // As we want to measure the view with actual data we must use data from the adapter and not from  the state
-        for (int i = 0; i < adapterItemCount; i++) {
+        for (int i = 0; mChildSize == null && i < adapterItemCount; i++) {
             if (vertical) {
-                if (mChildSize == null) {
-                    if (i < stateItemCount) {
-                        // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                        // For such items we will use previously calculated dimensions
+                if (i < stateItemCount) {
+                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
+                    // For such items we will use previously calculated dimensions
+                    if (!applySnapshotExtent(i, widthSize, true)) {
                         measureChild(recycler, i, widthSpec, unspecified, mChildDimension);
                     }
                 }
@@ -186,10 +364,10 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
                     break;
                 }
             } else {
-                if (mChildSize == null) {
-                    if (i < stateItemCount) {
-                        // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
-                        // For such items we will use previously calculated dimensions
+                if (i < stateItemCount) {
+                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
+                    // For such items we will use previously calculated dimensions
+                    if (!applySnapshotExtent(i, heightSize, false)) {
                         measureChild(recycler, i, unspecified, heightSpec, mChildDimension);
                     }
                 }
@@ -203,6 +381,11 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
             }
         }
 
+        if (mChildSize == null && adapterItemCount > 0) {
+            mMeasuredCrossSize = vertical ? widthSize : heightSize;
+            mMeasuredCrossExtent = vertical ? mChildDimension.width : mChildDimension.height;
+        }
+
         if ((vertical && height < heightSize) || (!vertical && width < widthSize)) {
             if (exactWidth) {
                 width = widthSize;
@@ -220,9 +403,109 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
         } else {
             super.onMeasure(recycler, state, widthSpec, heightSpec);
         }
-        if (mAdapter != null) {
-            mAdapter.notifyDataSetChanged();
+        mNotifier.notifyDataSetChanged();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        if (!hasUniformScrollbar(VERTICAL)) {
+            return super.computeVerticalScrollRange(state);
         }
+        return getUniformContentSize(state.getItemCount()) + getPaddingTop() + getPaddingBottom();
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        if (!hasUniformScrollbar(VERTICAL)) {
+            return super.computeVerticalScrollOffset(state);
+        }
+        final View first = getChildAt(0);
+        return Math.max(0, getPosition(first) * mChildSize + getPaddingTop() - getDecoratedTop(first));
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return hasUniformScrollbar(VERTICAL) ? getHeight() : super.computeVerticalScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        if (!hasUniformScrollbar(HORIZONTAL)) {
+            return super.computeHorizontalScrollRange(state);
+        }
+        return getUniformContentSize(state.getItemCount()) + getPaddingLeft() + getPaddingRight();
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        if (!hasUniformScrollbar(HORIZONTAL)) {
+            return super.computeHorizontalScrollOffset(state);
+        }
+        final View first = getChildAt(0);
+        return Math.max(0, getPosition(first) * mChildSize + getPaddingLeft() - getDecoratedLeft(first));
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return hasUniformScrollbar(HORIZONTAL) ? getWidth() : super.computeHorizontalScrollExtent(state);
+    }
+
+    /**
+     * Returns the size of all items along the scroll direction if the child size is set.
+     * Used by AdvancedRecyclerView to evaluate the OverScrollMode ifContentScrolls.
+     * @return content size without padding or -1 if the items have no uniform size
+     */
+    int getUniformContentSize() {
+        return mChildSize == null ? -1 : getUniformContentSize(getItemCount());
+    }
+
+    private int getUniformContentSize(int itemCount) {
+        return (int) Math.min((long) itemCount * mChildSize, Integer.MAX_VALUE);
+    }
+
+    private boolean hasUniformScrollbar(int orientation) {
+        // the arithmetic offset assumes the first child is the one with the lowest position
+        return mChildSize != null && getOrientation() == orientation && getChildCount() > 0
+                && !getReverseLayout() && !getStackFromEnd();
+    }
+
+    /**
+     * Record the extents of all attached children.
+     */
+    private void recordChildExtents() {
+        mExtentIndex.setItemCount(getItemCount());
+        final boolean vertical = getOrientation() == VERTICAL;
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
+            if (vertical) {
+                mExtentIndex.set(getPosition(child), getDecoratedMeasuredHeight(child) + p.topMargin + p.bottomMargin);
+            } else {
+                mExtentIndex.set(getPosition(child), getDecoratedMeasuredWidth(child) + p.leftMargin + p.rightMargin);
+            }
+        }
+    }
+
+    /**
+     * Take the dimension of the given position from a restored snapshot instead of measuring it.
+     * @return true - if the snapshot contains the position for the given cross axis size; false - otherwise
+     */
+    private boolean applySnapshotExtent(int position, int crossSize, boolean vertical) {
+        if (mSnapshotCrossSize < 0 || mSnapshotCrossSize != crossSize) {
+            return false;
+        }
+        final int extent = mExtentIndex.get(position);
+        if (extent == ItemExtentIndex.UNKNOWN) {
+            return false;
+        }
+        if (vertical) {
+            mChildDimension.width = mSnapshotCrossExtent;
+            mChildDimension.height = extent;
+        } else {
+            mChildDimension.width = extent;
+            mChildDimension.height = mSnapshotCrossExtent;
+        }
+        return true;
     }
 
     private void initChildDimensions(int width, int height, boolean vertical) {
@@ -240,32 +523,41 @@ public class LinearLayoutManager extends android.support.v7.widget.LinearLayoutM
     }
 
     private void measureChild(RecyclerView.Recycler recycler, int position, int widthSpec, int heightSpec, Dimension dimension) {
-        final View child = recycler.getViewForPosition(position);
+        final boolean traced = TraceSection.begin(TraceSection.LINEAR_MEASURE_CHILD);
+        try {
+            final View child = recycler.getViewForPosition(position);
+            mMeasuredChildCount++;
+
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
 
-        final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
+            final int hPadding = getPaddingLeft() + getPaddingRight();
+            final int vPadding = getPaddingTop() + getPaddingBottom();
 
-        final int hPadding = getPaddingLeft() + getPaddingRight();
-        final int vPadding = getPaddingTop() + getPaddingBottom();
+            final int hMargin = p.leftMargin + p.rightMargin;
+            final int vMargin = p.topMargin + p.bottomMargin;
 
-        final int hMargin = p.leftMargin + p.rightMargin;
-        final int vMargin = p.topMargin + p.bottomMargin;
+            final int hDecoration = getRightDecorationWidth(child) + getLeftDecorationWidth(child);
+            final int vDecoration = getTopDecorationHeight(child) + getBottomDecorationHeight(child);
 
-        final int hDecoration = getRightDecorationWidth(child) + getLeftDecorationWidth(child);
-        final int vDecoration = getTopDecorationHeight(child) + getBottomDecorationHeight(child);
+            final int childWidthSpec = getChildMeasureSpec(widthSpec, hPadding + hMargin + hDecoration, p.width, canScrollHorizontally());
+            final int childHeightSpec = getChildMeasureSpec(heightSpec, vPadding + vMargin + vDecoration, p.height, canScrollVertically());
 
-        final int childWidthSpec = getChildMeasureSpec(widthSpec, hPadding + hMargin + hDecoration, p.width, canScrollHorizontally());
-        final int childHeightSpec = getChildMeasureSpec(heightSpec, vPadding + vMargin + vDecoration, p.height, canScrollVertically());
+            child.measure(childWidthSpec, childHeightSpec);
 
-        child.measure(childWidthSpec, childHeightSpec);
+            Rect rect = new Rect();
+            calculateItemDecorationsForChild(child, rect);
 
-        Rect rect = new Rect();
-        calculateItemDecorationsForChild(child, rect);
+            dimension.width = rect.left + rect.right + child.getMeasuredWidth() + p.leftMargin + p.rightMargin;
+            dimension.height = rect.top + rect.bottom + child.getMeasuredHeight() + p.bottomMargin + p.topMargin;
 
-        dimension.width = rect.width() + child.getMeasuredWidth() + p.leftMargin + p.rightMargin;
-        dimension.height = rect.height() + child.getMeasuredHeight() + p.bottomMargin + p.topMargin;
+            mExtentIndex.setItemCount(getItemCount());
+            mExtentIndex.set(position, getOrientation() == VERTICAL ? dimension.height : dimension.width);
 
-        child.invalidate();
-        recycler.recycleView(child);
+            child.invalidate();
+            recycler.recycleView(child);
+        } finally {
+            TraceSection.end(traced);
+        }
     }
 
     /**
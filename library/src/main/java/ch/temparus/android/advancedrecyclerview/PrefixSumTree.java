@@ -0,0 +1,130 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree (Fenwick tree) over a list of non-negative integer values.
+ *
+ * Updating a single value, computing a prefix sum and finding the index containing a given
+ * offset all cost O(log n). Used to map between flat positions / offsets and their slots.
+ *
+ * @author Sandro Lutz
+ */
+final class PrefixSumTree {
+
+    private int[] mValues;
+    private long[] mTree;
+    private int mSize;
+
+    PrefixSumTree() {
+        this(0);
+    }
+
+    PrefixSumTree(int size) {
+        mValues = new int[Math.max(size, 1)];
+        mTree = new long[mValues.length + 1];
+        mSize = size;
+    }
+
+    /**
+     * Returns the number of slots in this tree.
+     * @return number of slots
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Resize the tree and reset every slot to zero.
+     * @param size new number of slots
+     */
+    void reset(int size) {
+        if (size > mValues.length) {
+            mValues = new int[size];
+            mTree = new long[size + 1];
+        } else {
+            Arrays.fill(mValues, 0);
+            Arrays.fill(mTree, 0);
+        }
+        mSize = size;
+    }
+
+    /**
+     * Replace all slots with the given values in O(n).
+     * @param values new slot values
+     * @param count  number of values to use
+     */
+    void build(int[] values, int count) {
+        reset(count);
+        System.arraycopy(values, 0, mValues, 0, count);
+        for (int i = 1; i <= count; i++) {
+            mTree[i] += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the given slot.
+     * @param index slot index
+     * @return slot value
+     */
+    int get(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * Set the value of the given slot.
+     * @param index slot index
+     * @param value new value (must not be negative)
+     */
+    void set(int index, int value) {
+        int delta = value - mValues[index];
+        if (delta == 0) return;
+        mValues[index] = value;
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the sum of all slots before the given index.
+     * @param index exclusive end index
+     * @return sum of the slots [0, index)
+     */
+    long sum(int index) {
+        long sum = 0;
+        for (int i = Math.min(index, mSize); i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum of all slots.
+     * @return total sum
+     */
+    long total() {
+        return sum(mSize);
+    }
+
+    /**
+     * Find the slot covering the given offset, so that sum(index) <= offset < sum(index + 1).
+     * @param offset offset within [0, total())
+     * @return slot index or size() if the offset is not smaller than total()
+     */
+    int indexOf(long offset) {
+        if (offset < 0) return 0;
+        int index = 0;
+        for (int step = Integer.highestOneBit(Math.max(mSize, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= offset) {
+                index = next;
+                offset -= mTree[next];
+            }
+        }
+        return index;
+    }
+}
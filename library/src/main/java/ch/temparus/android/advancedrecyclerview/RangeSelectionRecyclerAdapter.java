@@ -0,0 +1,68 @@
+package ch.temparus.android.advancedrecyclerview;
+
+/**
+ * Adapter interface for selectable items which can be selected in ranges, e.g. by a {@link DragSelectTouchListener},
+ * whose selection can be saved with the instance state of an {@link AdvancedRecyclerView} and observed by listeners.
+ *
+ * Extends {@link SelectionRecyclerAdapter}, so existing implementations of it are not affected.
+ *
+ * @author Sandro Lutz
+ */
+public interface RangeSelectionRecyclerAdapter extends SelectionRecyclerAdapter {
+
+    /**
+     * Listener notified about selection changes. All changes within a frame are delivered with a single call.
+     */
+    interface OnSelectionChangedListener {
+
+        /**
+         * Called once per frame in which the selection has changed.
+         * @param adapter adapter whose selection has changed
+         * @param change added and removed ranges of content positions and the new selected item count
+         */
+        void onSelectionChanged(RangeSelectionRecyclerAdapter adapter, SelectionChange change);
+    }
+
+    /**
+     * Check if the item at the given position is selected.
+     * @param position item position (header views included!)
+     * @return true - if item is selected; false - otherwise
+     */
+    boolean isSelected(int position);
+
+    /**
+     * Select or deselect all selectable items within the given range (header views included!)
+     *
+     * Only the items whose selection state actually changes are updated in the view.
+     * @param positionStart position of the first item
+     * @param itemCount number of items
+     * @param selected true - if the items should be selected; false - if they should be deselected
+     */
+    void setRangeSelected(int positionStart, int itemCount, boolean selected);
+
+    /**
+     * Get a compact, parcelable snapshot of the current selection.
+     * @return current selection state
+     */
+    SelectionState getSelectionState();
+
+    /**
+     * Replace the current selection with the given snapshot.
+     * @param state selection state previously returned by getSelectionState()
+     */
+    void setSelectionState(SelectionState state);
+
+    /**
+     * Register a listener which is notified about selection changes.
+     * @param listener listener to be added
+     */
+    @SuppressWarnings("unused")
+    void addOnSelectionChangedListener(OnSelectionChangedListener listener);
+
+    /**
+     * Unregister a listener previously added with addOnSelectionChangedListener(...).
+     * @param listener listener to be removed
+     */
+    @SuppressWarnings("unused")
+    void removeOnSelectionChangedListener(OnSelectionChangedListener listener);
+}
@@ -0,0 +1,225 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.util.SparseArray;
+
+/**
+ * Counters and histograms about the work done by an {@link AdvancedRecyclerView}.
+ *
+ * Collects the create and bind durations per view type of a connected {@link BaseAdapter}, the measure passes
+ * of this library's layout managers and the time spent evaluating the OverScrollMode ifContentScrolls.
+ * Nothing is recorded unless the metrics are set with AdvancedRecyclerView.setMetrics(...), so the disabled
+ * instrumentation only costs a null check. The same instance may be shared by several views to aggregate their data.
+ *
+ * Note: The metrics are recorded on the main thread and should only be read there.
+ *
+ * @author Sandro Lutz
+ */
+public final class RecyclerMetrics {
+
+    private final SparseArray<Histogram> mCreateHistograms = new SparseArray<>();
+    private final SparseArray<Histogram> mBindHistograms = new SparseArray<>();
+    private final Histogram mMeasureHistogram = new Histogram();
+    private final Histogram mOverScrollHistogram = new Histogram();
+    private long mMeasuredChildCount = 0;
+
+    /**
+     * Get the view types for which ViewHolders have been created or bound.
+     * @return view types
+     */
+    public int[] getViewTypes() {
+        SparseArray<Boolean> types = new SparseArray<>();
+        for (int i = 0; i < mCreateHistograms.size(); i++) {
+            types.put(mCreateHistograms.keyAt(i), Boolean.TRUE);
+        }
+        for (int i = 0; i < mBindHistograms.size(); i++) {
+            types.put(mBindHistograms.keyAt(i), Boolean.TRUE);
+        }
+        int[] viewTypes = new int[types.size()];
+        for (int i = 0; i < viewTypes.length; i++) {
+            viewTypes[i] = types.keyAt(i);
+        }
+        return viewTypes;
+    }
+
+    /**
+     * Get the durations of onCreateViewHolder(...) for the given view type.
+     * @param viewType view type
+     * @return histogram of the create durations
+     */
+    public Histogram getCreateHistogram(int viewType) {
+        return getHistogram(mCreateHistograms, viewType);
+    }
+
+    /**
+     * Get the durations of onBindViewHolder(...) for the given view type.
+     * @param viewType view type
+     * @return histogram of the bind durations
+     */
+    public Histogram getBindHistogram(int viewType) {
+        return getHistogram(mBindHistograms, viewType);
+    }
+
+    /**
+     * Get the durations of the layout managers' measure passes.
+     * @return histogram of the measure durations
+     */
+    public Histogram getMeasureHistogram() {
+        return mMeasureHistogram;
+    }
+
+    /**
+     * Returns the total number of children measured by the layout managers' measure passes.
+     * @return number of measured children
+     */
+    public long getMeasuredChildCount() {
+        return mMeasuredChildCount;
+    }
+
+    /**
+     * Get the durations of the OverScrollMode evaluations.
+     * @return histogram of the durations
+     */
+    public Histogram getOverScrollHistogram() {
+        return mOverScrollHistogram;
+    }
+
+    /**
+     * Reset all counters and histograms.
+     */
+    public void reset() {
+        mCreateHistograms.clear();
+        mBindHistograms.clear();
+        mMeasureHistogram.reset();
+        mOverScrollHistogram.reset();
+        mMeasuredChildCount = 0;
+    }
+
+    void recordCreate(int viewType, long durationNanos) {
+        getHistogram(mCreateHistograms, viewType).record(durationNanos);
+    }
+
+    void recordBind(int viewType, long durationNanos) {
+        getHistogram(mBindHistograms, viewType).record(durationNanos);
+    }
+
+    void recordMeasure(long durationNanos, int measuredChildCount) {
+        mMeasureHistogram.record(durationNanos);
+        mMeasuredChildCount += measuredChildCount;
+    }
+
+    void recordOverScroll(long durationNanos) {
+        mOverScrollHistogram.record(durationNanos);
+    }
+
+    private static Histogram getHistogram(SparseArray<Histogram> histograms, int viewType) {
+        Histogram histogram = histograms.get(viewType);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(viewType, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Histogram of durations with exponential buckets.
+     *
+     * Bucket 0 counts durations below 2 microseconds, bucket i counts durations within [2^i, 2^(i+1)) microseconds
+     * and the last bucket counts everything above.
+     */
+    public static final class Histogram {
+
+        public static final int BUCKET_COUNT = 24;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount = 0;
+        private long mTotalNanos = 0;
+        private long mMaxNanos = 0;
+
+        void record(long durationNanos) {
+            long micros = durationNanos / 1000;
+            int bucket = micros < 2 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+            mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+            mCount++;
+            mTotalNanos += durationNanos;
+            if (durationNanos > mMaxNanos) {
+                mMaxNanos = durationNanos;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mTotalNanos = 0;
+            mMaxNanos = 0;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         * @return number of samples
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * Returns the sum of all recorded durations.
+         * @return total duration in nanoseconds
+         */
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        /**
+         * Returns the average of all recorded durations.
+         * @return average duration in nanoseconds
+         */
+        public long getAverageNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         * @return maximum duration in nanoseconds
+         */
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * Returns the number of durations recorded in the given bucket.
+         * @param bucket bucket index within [0, BUCKET_COUNT)
+         * @return number of samples in the bucket
+         */
+        public long getBucket(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * Returns the exclusive upper bound of the given bucket.
+         * @param bucket bucket index within [0, BUCKET_COUNT)
+         * @return upper bound in microseconds or Long.MAX_VALUE for the last bucket
+         */
+        public static long getBucketUpperBoundMicros(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 2L << bucket;
+        }
+
+        /**
+         * Estimate the given percentile from the buckets.
+         * @param percentile percentile within [0, 100]
+         * @return upper bound of the bucket containing the percentile in microseconds
+         */
+        public long getPercentileMicros(double percentile) {
+            long threshold = (long) Math.ceil(mCount * percentile / 100d);
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += mBuckets[i];
+                if (count >= threshold && count > 0) {
+                    return getBucketUpperBoundMicros(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
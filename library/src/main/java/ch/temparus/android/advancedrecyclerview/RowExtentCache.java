@@ -0,0 +1,119 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the measured rows (or columns) of a grid, ordered by row index.
+ *
+ * Every row stores its first adapter position and its extent along the scroll direction. The rows are only
+ * valid for the cross axis size they have been measured with. A change of an item invalidates its row and all
+ * following rows, since the span assignment of the following items might have changed too.
+ *
+ * @author Sandro Lutz
+ */
+final class RowExtentCache {
+
+    private int[] mStarts = new int[16];
+    private int[] mExtents = new int[16];
+    private int mRowCount = 0;
+    private int mEndPosition = 0;
+    private int mCrossSize = -1;
+
+    /**
+     * Returns the number of valid rows.
+     * @return number of rows
+     */
+    int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * Returns the first adapter position of the given row.
+     * @param row row index within [0, getRowCount())
+     * @return adapter position
+     */
+    int getStart(int row) {
+        return mStarts[row];
+    }
+
+    /**
+     * Returns the first adapter position after the last valid row.
+     * @return adapter position of the first row to be measured
+     */
+    int getEndPosition() {
+        return mEndPosition;
+    }
+
+    /**
+     * Returns the extent of the given row along the scroll direction.
+     * @param row row index within [0, getRowCount())
+     * @return extent in pixels including decorations and margins
+     */
+    int getExtent(int row) {
+        return mExtents[row];
+    }
+
+    /**
+     * Append the next row.
+     * @param start first adapter position of the row
+     * @param end first adapter position after the row
+     * @param extent extent of the row along the scroll direction
+     */
+    void append(int start, int end, int extent) {
+        if (mRowCount == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mRowCount * 2);
+            mExtents = Arrays.copyOf(mExtents, mRowCount * 2);
+        }
+        mStarts[mRowCount] = start;
+        mExtents[mRowCount] = extent;
+        mEndPosition = end;
+        mRowCount++;
+    }
+
+    /**
+     * Returns the cross axis size the rows are measured with.
+     * @return cross axis size in pixels or -1 if no row has been measured yet
+     */
+    int getCrossSize() {
+        return mCrossSize;
+    }
+
+    /**
+     * Set the cross axis size the rows are measured with. Clears all rows if it has changed.
+     * @param crossSize cross axis size in pixels
+     */
+    void setCrossSize(int crossSize) {
+        if (mCrossSize != crossSize) {
+            mCrossSize = crossSize;
+            clear();
+        }
+    }
+
+    /**
+     * Invalidate the row containing the given adapter position and all following rows.
+     * @param position adapter position
+     */
+    void invalidateFrom(int position) {
+        // binary search for the last row starting at or before the position
+        int low = 0;
+        int high = mRowCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mStarts[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        mRowCount = Math.max(0, high);
+        mEndPosition = mRowCount == 0 ? 0 : mStarts[mRowCount];
+    }
+
+    /**
+     * Invalidate all rows.
+     */
+    void clear() {
+        mRowCount = 0;
+        mEndPosition = 0;
+    }
+}
@@ -0,0 +1,119 @@
+package ch.temparus.android.advancedrecyclerview;
+
+/**
+ * Selection changes of a {@link RangeSelectionRecyclerAdapter} which happened within a single frame.
+ *
+ * The changes are described as ranges of content positions (header views not included) which have been
+ * added to or removed from the selection. Items whose selection has been changed and reverted within
+ * the same frame are not reported.
+ *
+ * @author Sandro Lutz
+ */
+public final class SelectionChange {
+
+    private final int[] mAddedRanges;
+    private final int mAddedRangeCount;
+    private final int[] mRemovedRanges;
+    private final int mRemovedRangeCount;
+    private final int mSelectedItemCount;
+
+    SelectionChange(int[] addedRanges, int addedRangeCount, int[] removedRanges, int removedRangeCount, int selectedItemCount) {
+        mAddedRanges = addedRanges;
+        mAddedRangeCount = addedRangeCount;
+        mRemovedRanges = removedRanges;
+        mRemovedRangeCount = removedRangeCount;
+        mSelectedItemCount = selectedItemCount;
+    }
+
+    /**
+     * Returns the total number of selected items after this change.
+     * @return number of selected items
+     */
+    public int getSelectedItemCount() {
+        return mSelectedItemCount;
+    }
+
+    /**
+     * Returns the number of ranges added to the selection.
+     * @return number of added ranges
+     */
+    public int getAddedRangeCount() {
+        return mAddedRangeCount;
+    }
+
+    /**
+     * Get the first content position of an added range.
+     * @param index range index
+     * @return first position of the range in content list
+     */
+    public int getAddedRangeStart(int index) {
+        return mAddedRanges[2 * index];
+    }
+
+    /**
+     * Get the number of items of an added range.
+     * @param index range index
+     * @return number of items in the range
+     */
+    public int getAddedRangeItemCount(int index) {
+        return mAddedRanges[2 * index + 1];
+    }
+
+    /**
+     * Returns the number of ranges removed from the selection.
+     * @return number of removed ranges
+     */
+    public int getRemovedRangeCount() {
+        return mRemovedRangeCount;
+    }
+
+    /**
+     * Get the first content position of a removed range.
+     * @param index range index
+     * @return first position of the range in content list
+     */
+    public int getRemovedRangeStart(int index) {
+        return mRemovedRanges[2 * index];
+    }
+
+    /**
+     * Get the number of items of a removed range.
+     * @param index range index
+     * @return number of items in the range
+     */
+    public int getRemovedRangeItemCount(int index) {
+        return mRemovedRanges[2 * index + 1];
+    }
+
+    /**
+     * Collects consecutive positions into ranges.
+     */
+    static class Builder {
+
+        private int[] mRanges = new int[8];
+        private int mCount = 0;
+
+        void add(int position) {
+            if (mCount > 0 && mRanges[2 * mCount - 2] + mRanges[2 * mCount - 1] == position) {
+                mRanges[2 * mCount - 1]++;
+                return;
+            }
+            if (2 * mCount + 2 > mRanges.length) {
+                int[] ranges = new int[mRanges.length * 2];
+                System.arraycopy(mRanges, 0, ranges, 0, 2 * mCount);
+                mRanges = ranges;
+            }
+            mRanges[2 * mCount] = position;
+            mRanges[2 * mCount + 1] = 1;
+            mCount++;
+        }
+
+        int[] getRanges() {
+            return mRanges;
+        }
+
+        int getCount() {
+            return mCount;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseBooleanArray;
+
+/**
+ * Parcelable snapshot of a selection of content positions.
+ *
+ * The selection is stored as runs of consecutive positions. Every run is written as the gap to the end
+ * of the previous run and its length, both encoded as variable-length integers. A selection of 100'000
+ * consecutive items therefore takes only a few bytes and large selections don't hit the Binder transaction limit.
+ *
+ * @author Sandro Lutz
+ */
+public final class SelectionState implements Parcelable {
+
+    private final byte[] mData;
+    private final int mSelectedCount;
+
+    private SelectionState(byte[] data, int selectedCount) {
+        mData = data;
+        mSelectedCount = selectedCount;
+    }
+
+    /**
+     * Returns the number of selected items stored in this state.
+     * @return number of selected items
+     */
+    @SuppressWarnings("unused")
+    public int getSelectedItemCount() {
+        return mSelectedCount;
+    }
+
+    /**
+     * Encode the given selection.
+     * @param selectedItems selected content positions (keys with value true)
+     * @return encoded selection
+     */
+    static SelectionState encode(SparseBooleanArray selectedItems) {
+        Encoder encoder = new Encoder();
+        int count = 0;
+        int runStart = -1;
+        int runEnd = -1;
+        int previousEnd = 0;
+        for (int i = 0; i < selectedItems.size(); i++) {
+            if (!selectedItems.valueAt(i)) continue;
+            int position = selectedItems.keyAt(i);
+            count++;
+            if (position == runEnd) {
+                runEnd++;
+                continue;
+            }
+            if (runStart >= 0) {
+                encoder.write(runStart - previousEnd);
+                encoder.write(runEnd - runStart);
+                previousEnd = runEnd;
+            }
+            runStart = position;
+            runEnd = position + 1;
+        }
+        if (runStart >= 0) {
+            encoder.write(runStart - previousEnd);
+            encoder.write(runEnd - runStart);
+        }
+        return new SelectionState(encoder.toByteArray(), count);
+    }
+
+    /**
+     * Decode this state into a new selection.
+     * @return selected content positions
+     */
+    SparseBooleanArray decode() {
+        SparseBooleanArray selectedItems = new SparseBooleanArray(mSelectedCount);
+        int offset = 0;
+        int position = 0;
+        int[] value = new int[1];
+        while (offset < mData.length) {
+            offset = read(mData, offset, value);
+            position += value[0];
+            offset = read(mData, offset, value);
+            for (int end = position + value[0]; position < end; position++) {
+                selectedItems.append(position, true);
+            }
+        }
+        return selectedItems;
+    }
+
+    private static int read(byte[] data, int offset, int[] value) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[offset++];
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        value[0] = result;
+        return offset;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(mSelectedCount);
+        dest.writeByteArray(mData);
+    }
+
+    public static final Creator<SelectionState> CREATOR = new Creator<SelectionState>() {
+        @Override
+        public SelectionState createFromParcel(Parcel source) {
+            int selectedCount = source.readInt();
+            return new SelectionState(source.createByteArray(), selectedCount);
+        }
+
+        @Override
+        public SelectionState[] newArray(int size) {
+            return new SelectionState[size];
+        }
+    };
+
+    /**
+     * Writes unsigned variable-length integers into a growing byte array.
+     */
+    private static class Encoder {
+
+        private byte[] mBuffer = new byte[16];
+        private int mLength = 0;
+
+        private void write(int value) {
+            if (mLength + 5 > mBuffer.length) {
+                byte[] buffer = new byte[mBuffer.length * 2];
+                System.arraycopy(mBuffer, 0, buffer, 0, mLength);
+                mBuffer = buffer;
+            }
+            while ((value & ~0x7f) != 0) {
+                mBuffer[mLength++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mLength++] = (byte) value;
+        }
+
+        private byte[] toByteArray() {
+            byte[] data = new byte[mLength];
+            System.arraycopy(mBuffer, 0, data, 0, mLength);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.graphics.PointF;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.LinearSmoothScroller;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * "Jump then settle" smooth scrolling shared by the layout managers of this library.
+ *
+ * A smooth scroll to a far away position lays out and binds every item in between. If the target is further
+ * away than the threshold, the layout manager jumps to the screenful before the target without binding the
+ * skipped range and only animates the last screenful, in both directions.
+ *
+ * @author Sandro Lutz
+ */
+final class SmoothScrollJump {
+
+    /**
+     * Threshold value to use twice the number of visible items.
+     */
+    static final int AUTO = -1;
+
+    private SmoothScrollJump() {
+    }
+
+    /**
+     * Jump close to the target position if it is further away than the threshold
+     * and start the smooth scroll to the target after the next layout pass.
+     * @param layoutManager layout manager of the RecyclerView
+     * @param recyclerView RecyclerView to be scrolled
+     * @param position target adapter position
+     * @param threshold distance in items above which to jump, AUTO or 0 to never jump
+     * @return true - if the layout manager jumped and the smooth scroll has been posted; false - otherwise
+     */
+    static boolean jump(final LinearLayoutManager layoutManager, final RecyclerView recyclerView, final int position, int threshold) {
+        if (threshold == 0 || layoutManager.getChildCount() == 0) {
+            return false;
+        }
+        final int first = layoutManager.findFirstVisibleItemPosition();
+        final int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || (position >= first && position <= last)) {
+            return false;
+        }
+        final int visibleItemCount = last - first + 1;
+        if (threshold < 0) {
+            threshold = 2 * visibleItemCount;
+        }
+        final int distance = position < first ? first - position : position - last;
+        if (distance <= threshold) {
+            return false;
+        }
+
+        // land one screenful before the target, so the settle animation shows the direction of the scroll.
+        // Scrolling backward, the target is above the first visible item. Scrolling forward, the jump position
+        // is placed at the top, so it has to be two screenfuls before the target to leave one below the last item.
+        final int settleDistance = Math.min(visibleItemCount, threshold);
+        final int jumpPosition = position < first
+                ? Math.min(position + settleDistance, layoutManager.getItemCount() - 1)
+                : Math.max(position - 2 * settleDistance + 1, 0);
+        layoutManager.scrollToPositionWithOffset(jumpPosition, 0);
+        recyclerView.post(new Runnable() {
+            @Override
+            public void run() {
+                // started directly, so a remaining distance above the threshold does not cause another jump
+                final LinearSmoothScroller scroller = new LinearSmoothScroller(recyclerView.getContext()) {
+                    @Override
+                    public PointF computeScrollVectorForPosition(int targetPosition) {
+                        return layoutManager.computeScrollVectorForPosition(targetPosition);
+                    }
+                };
+                scroller.setTargetPosition(position);
+                layoutManager.startSmoothScroll(scroller);
+            }
+        });
+        return true;
+    }
+}
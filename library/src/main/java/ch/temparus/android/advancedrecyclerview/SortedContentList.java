@@ -0,0 +1,333 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sorted content list of a {@link BaseAdapter} notifying the adapter about its changes.
+ *
+ * Items are inserted at the position found with a binary search, so a single item costs O(log n) comparisons
+ * and one range notification instead of Collections.sort(...) and notifyDataSetChanged(). With a KeyProvider,
+ * an item replaces the item with the same key.
+ *
+ * Within beginBatch() and endBatch() the added items are collected and merged into the list at once:
+ * the collected items are sorted, their positions are found with a binary search each and the list is
+ * shifted only once, from the back. Adjacent new items are notified as a single range.
+ *
+ * All methods must be called on the main thread.
+ *
+ * @author Sandro Lutz
+ */
+public class SortedContentList<T> extends AbstractList<T> {
+
+    private final BaseAdapter mAdapter;
+    private final Comparator<? super T> mComparator;
+    private final KeyProvider<? super T> mKeyProvider;
+    private final Map<Object, T> mKeys;
+
+    private Object[] mItems = new Object[16];
+    private int mSize = 0;
+    private Map<Object, T> mBatch;
+    private int mBatchCount = 0;
+
+    /**
+     * Provider of the key identifying an item.
+     */
+    public interface KeyProvider<T> {
+
+        /**
+         * @param item item of the list
+         * @return key of the item, must implement equals(...) and hashCode()
+         */
+        Object getKey(T item);
+    }
+
+    /**
+     * @param adapter adapter displaying this list, i.e. getContentItem(int) reads from this list
+     * @param comparator comparator defining the order of the items
+     */
+    @SuppressWarnings("unused")
+    public SortedContentList(BaseAdapter adapter, Comparator<? super T> comparator) {
+        this(adapter, comparator, null);
+    }
+
+    /**
+     * @param adapter adapter displaying this list, i.e. getContentItem(int) reads from this list
+     * @param comparator comparator defining the order of the items
+     * @param keyProvider provider of the keys used to replace items instead of adding duplicates or null
+     */
+    public SortedContentList(BaseAdapter adapter, Comparator<? super T> comparator, KeyProvider<? super T> keyProvider) {
+        mAdapter = adapter;
+        mComparator = comparator;
+        mKeyProvider = keyProvider;
+        mKeys = keyProvider != null ? new HashMap<Object, T>() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return (T) mItems[index];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Collect all items added until the matching endBatch() and merge them into the list at once.
+     * Batches may be nested.
+     */
+    public void beginBatch() {
+        if (mBatchCount++ == 0) {
+            mBatch = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Merge the items added since the matching beginBatch() into the list.
+     */
+    public void endBatch() {
+        if (mBatchCount == 0) {
+            throw new IllegalStateException("endBatch() called without beginBatch()");
+        }
+        if (--mBatchCount > 0) return;
+        final Map<Object, T> batch = mBatch;
+        mBatch = null;
+        merge(batch.values());
+    }
+
+    /**
+     * Add an item at its sorted position. An item with the same key is replaced.
+     * @param item item to be added
+     * @return true
+     */
+    @Override
+    public boolean add(T item) {
+        if (mBatch != null) {
+            // the last item added with a key wins
+            mBatch.put(mKeyProvider != null ? mKeyProvider.getKey(item) : new Object(), item);
+            return true;
+        }
+        if (replace(item)) {
+            return true;
+        }
+        final int position = insertionPoint(item, 0, mSize);
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mItems, position, mItems, position + 1, mSize - position);
+        mItems[position] = item;
+        mSize++;
+        modCount++;
+        putKey(item);
+        mAdapter.notifyContentItemRangeInserted(position, 1);
+        return true;
+    }
+
+    /**
+     * Add all items at their sorted positions within a single batch.
+     * @param items items to be added
+     * @return true - if any item has been added; false - otherwise
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> items) {
+        beginBatch();
+        for (T item : items) {
+            add(item);
+        }
+        endBatch();
+        return !items.isEmpty();
+    }
+
+    @Override
+    public T remove(int index) {
+        final T item = get(index);
+        System.arraycopy(mItems, index + 1, mItems, index, mSize - index - 1);
+        mItems[--mSize] = null;
+        modCount++;
+        if (mKeys != null) {
+            mKeys.remove(mKeyProvider.getKey(item));
+        }
+        mAdapter.notifyContentItemRangeRemoved(index, 1);
+        return item;
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        final int index = indexOf(item);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Returns the position of the given item with a binary search.
+     * @param item item to search for
+     * @return position or -1 if the item is not in this list
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object item) {
+        final T value;
+        try {
+            value = (T) item;
+            // items comparing equal are adjacent, so only this range is searched linearly
+            for (int i = lowerBound(value); i < mSize && mComparator.compare(get(i), value) == 0; i++) {
+                if (item == null ? mItems[i] == null : item.equals(mItems[i])) {
+                    return i;
+                }
+            }
+        } catch (ClassCastException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return indexOf(item) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        final int count = mSize;
+        Arrays.fill(mItems, 0, mSize, null);
+        mSize = 0;
+        modCount++;
+        if (mKeys != null) {
+            mKeys.clear();
+        }
+        mAdapter.notifyContentItemRangeRemoved(0, count);
+    }
+
+    /**
+     * Merge the given items into the list with a single shift of the existing items.
+     */
+    @SuppressWarnings("unchecked")
+    private void merge(Collection<T> values) {
+        int count = 0;
+        Object[] added = new Object[values.size()];
+        for (T item : values) {
+            if (!replace(item)) {
+                added[count++] = item;
+            }
+        }
+        if (count == 0) return;
+        Arrays.sort(added, 0, count, (Comparator<Object>) mComparator);
+
+        // final position of the i-th added item is its insertion point in the old list plus i
+        final int[] positions = new int[count];
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            from = insertionPoint((T) added[i], from, mSize);
+            positions[i] = from + i;
+        }
+
+        // merge from the back, so every existing item is moved at most once
+        ensureCapacity(mSize + count);
+        int read = mSize - 1;
+        for (int i = count - 1; i >= 0; i--) {
+            final int target = positions[i];
+            final int oldPosition = target - i;
+            final int moved = read - oldPosition + 1;
+            if (moved > 0) {
+                System.arraycopy(mItems, oldPosition, mItems, target + 1, moved);
+                read = oldPosition - 1;
+            }
+            mItems[target] = added[i];
+            putKey((T) added[i]);
+        }
+        mSize += count;
+        modCount++;
+
+        // adjacent items are notified as one range, in ascending order
+        int rangeStart = positions[0];
+        int rangeCount = 1;
+        for (int i = 1; i < count; i++) {
+            if (positions[i] == rangeStart + rangeCount) {
+                rangeCount++;
+            } else {
+                mAdapter.notifyContentItemRangeInserted(rangeStart, rangeCount);
+                rangeStart = positions[i];
+                rangeCount = 1;
+            }
+        }
+        mAdapter.notifyContentItemRangeInserted(rangeStart, rangeCount);
+    }
+
+    /**
+     * Replace the item with the same key as the given item.
+     * @return true - if the item has replaced the old one in place; false - if it still has to be inserted
+     */
+    private boolean replace(T item) {
+        if (mKeys == null) return false;
+        final T old = mKeys.get(mKeyProvider.getKey(item));
+        if (old == null) return false;
+        final int index = indexOf(old);
+        if (index < 0) return false;
+        if (mComparator.compare(old, item) == 0) {
+            mItems[index] = item;
+            mKeys.put(mKeyProvider.getKey(item), item);
+            mAdapter.notifyContentItemRangeChanged(index, 1);
+            return true;
+        }
+        // the sort position changes, so the old item is removed and the new one inserted
+        remove(index);
+        return false;
+    }
+
+    private void putKey(T item) {
+        if (mKeys != null) {
+            mKeys.put(mKeyProvider.getKey(item), item);
+        }
+    }
+
+    /**
+     * Returns the position behind all items comparing less than or equal to the given item within [from, to).
+     */
+    private int insertionPoint(T item, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mComparator.compare(get(mid), item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the first item not comparing less than the given item.
+     */
+    private int lowerBound(T item) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mComparator.compare(get(mid), item) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mItems.length) {
+            mItems = Arrays.copyOf(mItems, Math.max(capacity, mItems.length * 2));
+        }
+    }
+}
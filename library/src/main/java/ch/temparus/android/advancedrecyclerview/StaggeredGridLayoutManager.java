@@ -0,0 +1,363 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * StaggeredGridLayoutManager with support for WRAP_CONTENT and another implementation of padding.
+ *
+ * The padding will only be applied to the items, but not to the scroll view, so that the edge effect will be
+ * the full length of the RecyclerView.
+ *
+ * Header views and the empty view of a {@link BaseAdapter} span all columns.
+ *
+ * The extent and the span of every item are cached once it has been measured or laid out. Measuring with
+ * WRAP_CONTENT fills the columns with the cached items until the available size is reached and only binds
+ * items which have not been measured before, so the repeated passes caused by gap fixing do not bind anything.
+ *
+ * @author Sandro Lutz
+ */
+public class StaggeredGridLayoutManager extends android.support.v7.widget.StaggeredGridLayoutManager {
+
+    private int mPaddingTop = 0;
+    private int mPaddingBottom = 0;
+    private int mPaddingLeft = 0;
+    private int mPaddingRight = 0;
+
+    private final ItemSpanCache mSpanCache = new ItemSpanCache();
+    private final Rect mDecorationInsets = new Rect();
+    private int mCacheCrossSize = -1;
+
+    private RecyclerMetrics mMetrics;
+    private int mMeasuredChildCount;
+
+    @SuppressWarnings("unused")
+    public StaggeredGridLayoutManager(int spanCount, int orientation) {
+        super(spanCount, orientation);
+    }
+
+    @SuppressWarnings("unused")
+    public StaggeredGridLayoutManager(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    /**
+     * Sets the padding.
+     * @param left   the left padding in pixels
+     * @param top    the top padding in pixels
+     * @param right  the right padding in pixels
+     * @param bottom the bottom padding in pixels
+     */
+    @SuppressWarnings("unused")
+    public void setPadding(int left, int top, int right, int bottom) {
+        mPaddingLeft = left;
+        mPaddingTop = top;
+        mPaddingRight = right;
+        mPaddingBottom = bottom;
+    }
+
+    @Override
+    public int getPaddingTop() {
+        return super.getPaddingTop() + mPaddingTop;
+    }
+
+    @Override
+    public int getPaddingBottom() {
+        return super.getPaddingBottom() + mPaddingBottom;
+    }
+
+    @Override
+    public int getPaddingLeft() {
+        return super.getPaddingLeft() + mPaddingLeft;
+    }
+
+    @Override
+    public int getPaddingRight() {
+        return super.getPaddingRight() + mPaddingRight;
+    }
+
+    @Override
+    public void setSpanCount(int spanCount) {
+        super.setSpanCount(spanCount);
+        // called by the super constructor before the cache exists
+        if (mSpanCache != null) {
+            mSpanCache.clear();
+        }
+    }
+
+    @Override
+    public void setOrientation(int orientation) {
+        super.setOrientation(orientation);
+        // called by the super constructor before the cache exists
+        if (mSpanCache != null) {
+            mSpanCache.clear();
+        }
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        super.onAdapterChanged(oldAdapter, newAdapter);
+        mSpanCache.clear();
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        mSpanCache.clear();
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        mSpanCache.onItemsAdded(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        mSpanCache.onItemsRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        super.onItemsUpdated(recyclerView, positionStart, itemCount);
+        mSpanCache.invalidate(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+        mSpanCache.onItemsMoved(from, to, itemCount);
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        super.onLayoutChildren(recycler, state);
+        recordChildren();
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollVerticallyBy(dy, recycler, state);
+        recordChildren();
+        return scrolled;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        recordChildren();
+        return scrolled;
+    }
+
+    /**
+     * Set the metrics recording the measure passes of this layout manager.
+     * @param metrics metrics or null to disable recording
+     */
+    void setMetrics(RecyclerMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Override
+    public void onMeasure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
+        final boolean traced = TraceSection.begin(TraceSection.STAGGERED_MEASURE);
+        try {
+            if (mMetrics == null) {
+                measure(recycler, state, widthSpec, heightSpec);
+                return;
+            }
+            final long start = System.nanoTime();
+            mMeasuredChildCount = 0;
+            measure(recycler, state, widthSpec, heightSpec);
+            mMetrics.recordMeasure(System.nanoTime() - start, mMeasuredChildCount);
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    private void measure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
+        final int widthMode = View.MeasureSpec.getMode(widthSpec);
+        final int heightMode = View.MeasureSpec.getMode(heightSpec);
+
+        final boolean vertical = getOrientation() == VERTICAL;
+        final int crossMode = vertical ? widthMode : heightMode;
+        final int mainMode = vertical ? heightMode : widthMode;
+
+        if (mainMode == View.MeasureSpec.EXACTLY || crossMode == View.MeasureSpec.UNSPECIFIED) {
+            // nothing to wrap, or no size to distribute over the spans
+            super.onMeasure(recycler, state, widthSpec, heightSpec);
+            return;
+        }
+
+        final int crossSize = View.MeasureSpec.getSize(vertical ? widthSpec : heightSpec);
+        final int mainSize = View.MeasureSpec.getSize(vertical ? heightSpec : widthSpec);
+        final int crossPadding = vertical ? getPaddingLeft() + getPaddingRight() : getPaddingTop() + getPaddingBottom();
+        final int mainPadding = vertical ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        final int mainLimit = mainMode == View.MeasureSpec.UNSPECIFIED ? Integer.MAX_VALUE : mainSize - mainPadding;
+
+        final int mainExtent = measureSpans(recycler, state, Math.max(0, crossSize - crossPadding), mainLimit, vertical);
+
+        final int main;
+        if (mainMode == View.MeasureSpec.AT_MOST && mainExtent >= mainLimit) {
+            main = mainSize;
+        } else {
+            main = mainExtent + mainPadding;
+        }
+        if (vertical) {
+            setMeasuredDimension(crossSize, main);
+        } else {
+            setMeasuredDimension(main, crossSize);
+        }
+    }
+
+    /**
+     * Store the measured extents and spans of this layout manager in the given snapshot.
+     * @param snapshot snapshot to be filled
+     */
+    void captureSnapshot(LayoutSnapshot snapshot) {
+        recordChildren();
+        final int itemCount = getItemCount();
+        snapshot.type = LayoutSnapshot.TYPE_STAGGERED_GRID;
+        snapshot.orientation = getOrientation();
+        snapshot.spanCount = getSpanCount();
+        snapshot.crossSize = mCacheCrossSize;
+        snapshot.itemCount = itemCount;
+        snapshot.extents = new int[itemCount];
+        snapshot.spans = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            snapshot.extents[i] = mSpanCache.getExtent(i);
+            snapshot.spans[i] = mSpanCache.getSpan(i);
+        }
+    }
+
+    /**
+     * Restore the measured extents and spans of the given snapshot. The next measure pass takes the restored
+     * items instead of binding them, as long as the cross axis size has not changed.
+     * @param snapshot snapshot taken with the same orientation and span count
+     * @return true - if the snapshot has been restored; false - otherwise
+     */
+    boolean restoreSnapshot(LayoutSnapshot snapshot) {
+        if (snapshot.orientation != getOrientation() || snapshot.spanCount != getSpanCount()) {
+            return false;
+        }
+        mCacheCrossSize = snapshot.crossSize;
+        mSpanCache.clear();
+        mSpanCache.setItemCount(snapshot.itemCount);
+        for (int i = 0; i < snapshot.itemCount; i++) {
+            mSpanCache.put(i, snapshot.extents[i], snapshot.spans[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Fill the spans with the items in adapter order until the longest span reaches the given limit.
+     * Items with a recorded span are placed in it, all other items in the shortest span.
+     * @return extent of the longest span
+     */
+    private int measureSpans(RecyclerView.Recycler recycler, RecyclerView.State state, int crossSpace, int mainLimit, boolean vertical) {
+        final int spanCount = getSpanCount();
+        final int itemCount = getItemCount();
+        final int stateItemCount = state.getItemCount();
+        final int spanSize = crossSpace / spanCount;
+
+        if (mCacheCrossSize != crossSpace) {
+            mCacheCrossSize = crossSpace;
+            mSpanCache.clear();
+        }
+        mSpanCache.setItemCount(itemCount);
+        recycler.clear();
+
+        final int[] spanEnds = new int[spanCount];
+        int longest = 0;
+        for (int i = 0; i < itemCount && longest < mainLimit; i++) {
+            int extent = mSpanCache.getExtent(i);
+            if (extent == ItemSpanCache.UNKNOWN) {
+                if (i >= stateItemCount) {
+                    // we should not exceed state count, otherwise we'll get IndexOutOfBoundsException.
+                    continue;
+                }
+                extent = measureChild(recycler, i, spanSize, crossSpace, vertical);
+            }
+
+            final int span = mSpanCache.getSpan(i);
+            if (span == ItemSpanCache.FULL_SPAN) {
+                final int end = longest + extent;
+                for (int s = 0; s < spanCount; s++) {
+                    spanEnds[s] = end;
+                }
+                longest = end;
+            } else {
+                int target = span >= 0 && span < spanCount ? span : 0;
+                if (span < 0 || span >= spanCount) {
+                    for (int s = 1; s < spanCount; s++) {
+                        if (spanEnds[s] < spanEnds[target]) {
+                            target = s;
+                        }
+                    }
+                }
+                spanEnds[target] += extent;
+                longest = Math.max(longest, spanEnds[target]);
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Measure a child with the width of a span (or of all spans if it is a full span item) and cache its extent.
+     * @return extent of the child along the scroll direction including margins and decoration insets
+     */
+    private int measureChild(RecyclerView.Recycler recycler, int position, int spanSize, int crossSpace, boolean vertical) {
+        final boolean traced = TraceSection.begin(TraceSection.STAGGERED_MEASURE_CHILD);
+        try {
+            final View child = recycler.getViewForPosition(position);
+            mMeasuredChildCount++;
+
+            final RecyclerView.LayoutParams p = (RecyclerView.LayoutParams) child.getLayoutParams();
+            final boolean fullSpan = p instanceof LayoutParams && ((LayoutParams) p).isFullSpan();
+            final int crossExtent = fullSpan ? crossSpace : spanSize;
+
+            final Rect insets = mDecorationInsets;
+            calculateItemDecorationsForChild(child, insets);
+
+            final int hMargin = p.leftMargin + p.rightMargin + insets.left + insets.right;
+            final int vMargin = p.topMargin + p.bottomMargin + insets.top + insets.bottom;
+
+            final int childWidthSpec = vertical
+                    ? getChildMeasureSpec(crossExtent, hMargin, p.width, false)
+                    : getChildMeasureSpec(0, hMargin, p.width, true);
+            final int childHeightSpec = vertical
+                    ? getChildMeasureSpec(0, vMargin, p.height, true)
+                    : getChildMeasureSpec(crossExtent, vMargin, p.height, false);
+
+            child.measure(childWidthSpec, childHeightSpec);
+
+            final int extent = vertical ? child.getMeasuredHeight() + vMargin : child.getMeasuredWidth() + hMargin;
+            mSpanCache.put(position, extent, fullSpan ? ItemSpanCache.FULL_SPAN : ItemSpanCache.UNKNOWN);
+
+            child.invalidate();
+            recycler.recycleView(child);
+            return extent;
+        } finally {
+            TraceSection.end(traced);
+        }
+    }
+
+    /**
+     * Record the extents and spans of all attached children.
+     */
+    private void recordChildren() {
+        mSpanCache.setItemCount(getItemCount());
+        final boolean vertical = getOrientation() == VERTICAL;
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            final LayoutParams p = (LayoutParams) child.getLayoutParams();
+            final int extent = vertical
+                    ? getDecoratedMeasuredHeight(child) + p.topMargin + p.bottomMargin
+                    : getDecoratedMeasuredWidth(child) + p.leftMargin + p.rightMargin;
+            mSpanCache.put(getPosition(child), extent, p.isFullSpan() ? ItemSpanCache.FULL_SPAN : p.getSpanIndex());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named systrace / Perfetto sections around the hot paths of this library.
+ *
+ * Sections are only written after tracing has been enabled with AdvancedRecyclerView.setTracingEnabled(true)
+ * on Jelly Bean MR2 and above. Otherwise every call only reads a static flag.
+ *
+ * @author Sandro Lutz
+ */
+final class TraceSection {
+
+    static final String CREATE_VIEW_HOLDER = "BaseAdapter.onCreateViewHolder";
+    static final String BIND_VIEW_HOLDER = "BaseAdapter.onBindViewHolder";
+    static final String SET_HEADER_VIEW = "BaseAdapter.HeaderViewHolder.setHeaderView";
+    static final String LINEAR_MEASURE = "LinearLayoutManager.onMeasure";
+    static final String LINEAR_MEASURE_CHILD = "LinearLayoutManager.measureChild";
+    static final String GRID_MEASURE = "GridLayoutManager.onMeasure";
+    static final String GRID_MEASURE_CHILD = "GridLayoutManager.measureChild";
+    static final String STAGGERED_MEASURE = "StaggeredGridLayoutManager.onMeasure";
+    static final String STAGGERED_MEASURE_CHILD = "StaggeredGridLayoutManager.measureChild";
+    static final String DRAW_DECORATIONS = "AdvancedRecyclerView.onDraw(ItemDecorations)";
+    // includes the scroll bars, which View.draw(...) draws right before the item decorations
+    static final String DRAW_DECORATIONS_OVER = "AdvancedRecyclerView.draw(ItemDecorations over)";
+    static final String DRAW_DIVIDERS = "DividerItemDecoration.onDraw";
+
+    private static volatile boolean sEnabled = false;
+
+    private TraceSection() {
+    }
+
+    /**
+     * Enable or disable writing of trace sections.
+     * @param enabled true - if sections should be written; false - otherwise
+     */
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * Begin a section. Every call has to be followed by a call of end(boolean) on the same thread.
+     * @param sectionName name of the section
+     * @return true - if a section has been begun; false - if tracing is disabled
+     */
+    static boolean begin(String sectionName) {
+        if (!sEnabled) {
+            return false;
+        }
+        TraceCompat.beginSection(sectionName);
+        return true;
+    }
+
+    /**
+     * End the section started last on this thread.
+     *
+     * Note: Tracing may have been enabled or disabled in between, so the result of begin(String) decides
+     *       whether a section has to be ended.
+     * @param begun value returned by the matching call of begin(String)
+     */
+    static void end(boolean begun) {
+        if (begun) {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * android.os.Trace access, only loaded on Jelly Bean MR2 and above.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static class TraceCompat {
+
+        static void beginSection(String sectionName) {
+            Trace.beginSection(sectionName);
+        }
+
+        static void endSection() {
+            Trace.endSection();
+        }
+    }
+}
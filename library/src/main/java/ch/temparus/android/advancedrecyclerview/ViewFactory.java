@@ -0,0 +1,139 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Factory creating a header view or an empty view when it is needed for the first time.
+ *
+ * A BaseAdapter creates a header view once it is bound and its empty view once there are no content items,
+ * an AdvancedRecyclerView creates its empty view once its adapter is empty. Views which are never shown are
+ * never inflated. The view is created once and reused afterwards.
+ *
+ * The creation may be run ahead of time on a background thread with prefetch(Context), e.g. right after the
+ * screen has been set up. If the view is needed while the prefetch is still queued behind other background work,
+ * the prefetch is cancelled and the view is created on the calling thread. The calling thread only waits for
+ * a prefetch which is running already.
+ *
+ * @author Sandro Lutz
+ */
+public abstract class ViewFactory {
+
+    private static final int IDLE = 0;
+    private static final int QUEUED = 1;
+    private static final int RUNNING = 2;
+
+    private View mView;
+    private int mPrefetchState = IDLE;
+
+    /**
+     * Create a factory inflating the given layout.
+     * @param layoutResId layout resource
+     * @return view factory
+     */
+    @SuppressWarnings("unused")
+    public static ViewFactory fromLayout(final int layoutResId) {
+        return new ViewFactory() {
+            @Override
+            protected View onCreateView(Context context) {
+                return LayoutInflater.from(context).inflate(layoutResId, null, false);
+            }
+        };
+    }
+
+    /**
+     * Create a factory returning an already created view.
+     * @param view view
+     * @return view factory
+     */
+    static ViewFactory of(View view) {
+        final ViewFactory factory = new ViewFactory() {
+            @Override
+            protected View onCreateView(Context context) {
+                throw new IllegalStateException("View has been created already");
+            }
+        };
+        factory.mView = view;
+        return factory;
+    }
+
+    /**
+     * Called once to create the view. Runs on the main thread or, if prefetch(Context) has been called,
+     * on a background thread.
+     *
+     * Note: The view must not be attached to a parent.
+     * @param context context of the adapter or the view
+     * @return created view
+     */
+    protected abstract View onCreateView(Context context);
+
+    /**
+     * Create the view on a background thread, if it has not been created yet.
+     * @param context context used to create the view
+     */
+    @SuppressWarnings("unused")
+    public void prefetch(final Context context) {
+        synchronized (this) {
+            if (mView != null || mPrefetchState != IDLE) return;
+            mPrefetchState = QUEUED;
+        }
+        BackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ViewFactory.this) {
+                    if (mPrefetchState != QUEUED) {
+                        // cancelled by getView(Context)
+                        return;
+                    }
+                    mPrefetchState = RUNNING;
+                }
+                View view = null;
+                try {
+                    view = onCreateView(context);
+                } finally {
+                    synchronized (ViewFactory.this) {
+                        // an interrupted getView(Context) may have created the view in the meantime
+                        if (mView == null) {
+                            mView = view;
+                        }
+                        mPrefetchState = IDLE;
+                        ViewFactory.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the view, creating it on the calling thread if needed.
+     * A queued prefetch is cancelled, a running one is waited for.
+     * @param context context used to create the view
+     * @return view
+     */
+    synchronized View getView(Context context) {
+        if (mPrefetchState == QUEUED) {
+            mPrefetchState = IDLE;
+        }
+        while (mPrefetchState == RUNNING) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (mView == null) {
+            mView = onCreateView(context);
+        }
+        return mView;
+    }
+
+    /**
+     * Returns the view if it has been created already.
+     * @return view or null
+     */
+    synchronized View peekView() {
+        return mView;
+    }
+}
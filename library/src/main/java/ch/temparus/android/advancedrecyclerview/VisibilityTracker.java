@@ -0,0 +1,310 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.os.SystemClock;
+import android.support.v4.util.LongSparseArray;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Tracker reporting which content items are visible, e.g. to log impressions.
+ *
+ * The visibility is evaluated at most once per frame after the connected {@link AdvancedRecyclerView} has been
+ * scrolled, laid out or its adapter has changed. Only the attached children are visited: the visible fraction of
+ * a child is computed from its decorated bounds within the padded area of the view. Header views of an
+ * {@link AdvancedRecyclerAdapter} are skipped, so all reported positions are content positions.
+ *
+ * An item enters once it has been visible with at least the minimum fraction for the dwell time and exits as soon
+ * as it falls below the minimum fraction, it is no longer laid out or the tracker is detached.
+ *
+ * The items are identified by their stable ids if the adapter has stable ids. Otherwise they are identified by
+ * their adapter positions, which are shifted with the range notifications of the adapter. A notifyDataSetChanged()
+ * keeps the positions in this case, so use stable ids if items are inserted or removed that way.
+ *
+ * Set it with AdvancedRecyclerView.setVisibilityTracker(...).
+ *
+ * @author Sandro Lutz
+ */
+public class VisibilityTracker {
+
+    private static final float DEFAULT_MIN_VISIBLE_FRACTION = 0.5f;
+    private static final long DEFAULT_DWELL_MILLIS = 1000;
+
+    private final OnVisibilityChangedListener mListener;
+    // items by stable id or, without stable ids, by adapter position
+    private LongSparseArray<ItemState> mItems = new LongSparseArray<>();
+    private LongSparseArray<ItemState> mShiftedItems = new LongSparseArray<>();
+    private float mMinVisibleFraction = DEFAULT_MIN_VISIBLE_FRACTION;
+    private long mDwellMillis = DEFAULT_DWELL_MILLIS;
+    private int mPass = 0;
+
+    private RecyclerView mRecyclerView;
+    private final FrameTask mEvaluateTask = new FrameTask() {
+        @Override
+        void onFrame() {
+            evaluate();
+        }
+    };
+    private final Runnable mDwellRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mEvaluateTask.schedule();
+        }
+    };
+
+    /**
+     * Listener notified about content items entering and exiting the visible area.
+     */
+    public interface OnVisibilityChangedListener {
+
+        /**
+         * Called once the content item has been visible for the dwell time.
+         * @param position content position (header views not included)
+         */
+        void onItemEntered(int position);
+
+        /**
+         * Called once an entered content item is no longer visible.
+         * @param position content position (header views not included)
+         * @param visibleMillis time since the item has become visible in milliseconds
+         */
+        void onItemExited(int position, long visibleMillis);
+    }
+
+    /**
+     * @param listener listener to be notified
+     */
+    public VisibilityTracker(OnVisibilityChangedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Set the fraction of an item's area which has to be visible for the item to count as visible.
+     * @param fraction fraction within (0, 1] (default: 0.5)
+     */
+    @SuppressWarnings("unused")
+    public void setMinVisibleFraction(float fraction) {
+        mMinVisibleFraction = fraction;
+    }
+
+    /**
+     * Set the time an item has to be visible before it enters.
+     * @param millis dwell time in milliseconds (default: 1000)
+     */
+    @SuppressWarnings("unused")
+    public void setDwellTime(long millis) {
+        mDwellMillis = millis;
+    }
+
+    /**
+     * Connect this tracker to the given view. Must be called on the main thread.
+     * @param recyclerView view to be tracked
+     */
+    void attach(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        scheduleEvaluation();
+    }
+
+    /**
+     * Disconnect this tracker, letting all entered items exit. Must be called on the main thread.
+     */
+    void detach() {
+        mEvaluateTask.cancel();
+        if (mRecyclerView != null) {
+            mRecyclerView.removeCallbacks(mDwellRunnable);
+        }
+        mRecyclerView = null;
+        exitAll();
+    }
+
+    /**
+     * Evaluate the visibility in the next frame. Multiple calls within a frame cause a single evaluation.
+     */
+    void scheduleEvaluation() {
+        if (mRecyclerView != null) {
+            mEvaluateTask.schedule();
+        }
+    }
+
+    /**
+     * Let all entered items exit, e.g. because the view is no longer shown.
+     */
+    void exitAll() {
+        final long now = SystemClock.uptimeMillis();
+        final int headerCount = getHeaderCount();
+        for (int i = 0; i < mItems.size(); i++) {
+            final ItemState item = mItems.valueAt(i);
+            if (item.entered) {
+                mListener.onItemExited(item.position - headerCount, now - item.visibleSince);
+            }
+        }
+        mItems.clear();
+    }
+
+    /**
+     * Shift the tracked items behind the inserted positions. Must be called on the main thread.
+     * @param positionStart first inserted adapter position
+     * @param itemCount number of inserted items
+     */
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        if (hasStableIds()) return;
+        for (int i = 0; i < mItems.size(); i++) {
+            final ItemState item = mItems.valueAt(i);
+            if (item.position >= positionStart) {
+                item.position += itemCount;
+            }
+            mShiftedItems.put(item.position, item);
+        }
+        swapShiftedItems();
+    }
+
+    /**
+     * Let the removed items exit and shift the tracked items behind them. Must be called on the main thread.
+     * @param positionStart first removed adapter position
+     * @param itemCount number of removed items
+     */
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (hasStableIds()) return;
+        final long now = SystemClock.uptimeMillis();
+        final int headerCount = getHeaderCount();
+        for (int i = 0; i < mItems.size(); i++) {
+            final ItemState item = mItems.valueAt(i);
+            if (item.position >= positionStart + itemCount) {
+                item.position -= itemCount;
+            } else if (item.position >= positionStart) {
+                if (item.entered) {
+                    mListener.onItemExited(item.position - headerCount, now - item.visibleSince);
+                }
+                continue;
+            }
+            mShiftedItems.put(item.position, item);
+        }
+        swapShiftedItems();
+    }
+
+    /**
+     * Move the tracked items along with the moved positions. Must be called on the main thread.
+     * @param fromPosition previous adapter position of the first moved item
+     * @param toPosition new adapter position of the first moved item
+     * @param itemCount number of moved items
+     */
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        if (hasStableIds()) return;
+        for (int i = 0; i < mItems.size(); i++) {
+            final ItemState item = mItems.valueAt(i);
+            if (item.position >= fromPosition && item.position < fromPosition + itemCount) {
+                item.position += toPosition - fromPosition;
+            } else if (fromPosition < toPosition && item.position >= fromPosition + itemCount
+                    && item.position < toPosition + itemCount) {
+                item.position -= itemCount;
+            } else if (toPosition < fromPosition && item.position >= toPosition && item.position < fromPosition) {
+                item.position += itemCount;
+            }
+            mShiftedItems.put(item.position, item);
+        }
+        swapShiftedItems();
+    }
+
+    private void swapShiftedItems() {
+        final LongSparseArray<ItemState> items = mItems;
+        mItems = mShiftedItems;
+        mShiftedItems = items;
+        mShiftedItems.clear();
+    }
+
+    private boolean hasStableIds() {
+        return mRecyclerView != null && mRecyclerView.getAdapter() != null && mRecyclerView.getAdapter().hasStableIds();
+    }
+
+    private int getHeaderCount() {
+        final RecyclerView.Adapter adapter = mRecyclerView != null ? mRecyclerView.getAdapter() : null;
+        return adapter instanceof AdvancedRecyclerAdapter ? ((AdvancedRecyclerAdapter) adapter).getHeaderCount() : 0;
+    }
+
+    private void evaluate() {
+        final RecyclerView recyclerView = mRecyclerView;
+        if (recyclerView == null) return;
+        final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager == null || !recyclerView.isShown()) {
+            exitAll();
+            return;
+        }
+
+        final long now = SystemClock.uptimeMillis();
+        final int pass = ++mPass;
+        final int headerCount = getHeaderCount();
+        final boolean stableIds = hasStableIds();
+        final int contentCount = recyclerView.getAdapter() instanceof AdvancedRecyclerAdapter
+                ? ((AdvancedRecyclerAdapter) recyclerView.getAdapter()).getContentItemCount() : Integer.MAX_VALUE;
+        final int left = recyclerView.getPaddingLeft();
+        final int top = recyclerView.getPaddingTop();
+        final int right = recyclerView.getWidth() - recyclerView.getPaddingRight();
+        final int bottom = recyclerView.getHeight() - recyclerView.getPaddingBottom();
+        long nextDwell = Long.MAX_VALUE;
+
+        for (int i = 0; i < layoutManager.getChildCount(); i++) {
+            final View child = layoutManager.getChildAt(i);
+            final RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            // the adapter position already includes notifications which have not been laid out yet
+            final int adapterPosition = holder.getAdapterPosition();
+            final int position = adapterPosition - headerCount;
+            if (adapterPosition == RecyclerView.NO_POSITION || position < 0 || position >= contentCount) continue;
+
+            final int childLeft = layoutManager.getDecoratedLeft(child);
+            final int childTop = layoutManager.getDecoratedTop(child);
+            final int childRight = layoutManager.getDecoratedRight(child);
+            final int childBottom = layoutManager.getDecoratedBottom(child);
+            final long area = (long) (childRight - childLeft) * (childBottom - childTop);
+            if (area <= 0) continue;
+            final long visibleWidth = Math.max(0, Math.min(childRight, right) - Math.max(childLeft, left));
+            final long visibleHeight = Math.max(0, Math.min(childBottom, bottom) - Math.max(childTop, top));
+            if ((float) (visibleWidth * visibleHeight) / area < mMinVisibleFraction) continue;
+
+            final long key = stableIds ? holder.getItemId() : adapterPosition;
+            ItemState item = mItems.get(key);
+            if (item == null) {
+                item = new ItemState();
+                item.visibleSince = now;
+                mItems.put(key, item);
+            }
+            item.position = adapterPosition;
+            item.pass = pass;
+            if (!item.entered) {
+                final long remaining = item.visibleSince + mDwellMillis - now;
+                if (remaining <= 0) {
+                    item.entered = true;
+                    mListener.onItemEntered(position);
+                } else {
+                    nextDwell = Math.min(nextDwell, remaining);
+                }
+            }
+        }
+
+        // items not seen in this pass have become invisible
+        for (int i = mItems.size() - 1; i >= 0; i--) {
+            final ItemState item = mItems.valueAt(i);
+            if (item.pass != pass) {
+                mItems.removeAt(i);
+                if (item.entered) {
+                    mListener.onItemExited(item.position - headerCount, now - item.visibleSince);
+                }
+            }
+        }
+
+        // items still within their dwell time are evaluated again once it has passed, even without scrolling
+        recyclerView.removeCallbacks(mDwellRunnable);
+        if (nextDwell != Long.MAX_VALUE) {
+            recyclerView.postDelayed(mDwellRunnable, nextDwell);
+        }
+    }
+
+    /**
+     * Visibility of a content item.
+     */
+    private static class ItemState {
+
+        private int position;
+        private long visibleSince;
+        private boolean entered;
+        private int pass;
+    }
+}
@@ -0,0 +1,214 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the chunked merge of the matches into the content list and the range notifications it sends.
+ * The source is scanned synchronously, the chunks are applied by the main looper.
+ *
+ * @author Sandro Lutz
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ContentFilterTest {
+
+    private static final Executor SYNCHRONOUS = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private static final ContentFilter.Predicate<Integer> EVEN = new ContentFilter.Predicate<Integer>() {
+        @Override
+        public boolean matches(Integer item) {
+            return item % 2 == 0;
+        }
+    };
+
+    private static final ContentFilter.Predicate<Integer> MULTIPLE_OF_THREE = new ContentFilter.Predicate<Integer>() {
+        @Override
+        public boolean matches(Integer item) {
+            return item % 3 == 0;
+        }
+    };
+
+    private ListAdapter<Integer> mAdapter;
+    private final List<Integer> mCompleted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mAdapter = new ListAdapter<>(RuntimeEnvironment.application);
+        mCompleted.clear();
+    }
+
+    @Test
+    public void supersededQueryRestartsAtFirstChunk() {
+        ContentFilter<Integer> filter = createFilter(50, 10);
+        Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+        scheduler.pause();
+
+        filter.filter(EVEN);
+        // only the first chunk of the first query is applied, the rest of the content is still unfiltered
+        scheduler.runOneTask();
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8, 10, 11, 12), mAdapter.items.subList(0, 8));
+        assertEquals(45, mAdapter.items.size());
+
+        filter.filter(MULTIPLE_OF_THREE);
+        scheduler.unPause();
+        scheduler.advanceToLastPostedRunnable();
+
+        assertEquals(select(50, MULTIPLE_OF_THREE), mAdapter.items);
+        assertEquals(Collections.singletonList(17), mCompleted);
+        assertNotificationsMatchSize(50);
+    }
+
+    @Test
+    public void chunksWithFewRangesAreNotifiedRangeByRange() {
+        ContentFilter<Integer> filter = createFilter(200, 200);
+
+        filter.filter(new ContentFilter.Predicate<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return item < 50 || item >= 100;
+            }
+        });
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertEquals(Collections.singletonList("remove 50 50"), mAdapter.notifications);
+        assertEquals(150, mAdapter.items.size());
+    }
+
+    @Test
+    public void chunksWithManyRangesAreReplacedAtOnce() {
+        ContentFilter<Integer> filter = createFilter(200, 200);
+
+        filter.filter(EVEN);
+        Robolectric.flushForegroundThreadScheduler();
+
+        // 100 removed ranges exceed the limit of 32 ranges per chunk
+        assertEquals(Arrays.asList("remove 0 200", "insert 0 100"), mAdapter.notifications);
+        assertEquals(select(200, EVEN), mAdapter.items);
+
+        mAdapter.notifications.clear();
+        filter.filter(MULTIPLE_OF_THREE);
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertEquals(Arrays.asList("remove 0 100", "insert 0 67"), mAdapter.notifications);
+        assertEquals(select(200, MULTIPLE_OF_THREE), mAdapter.items);
+    }
+
+    @Test
+    public void emptySourceCompletesWithoutNotifications() {
+        ContentFilter<Integer> filter = createFilter(0, 10);
+
+        filter.filter(EVEN);
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertTrue(mAdapter.notifications.isEmpty());
+        assertTrue(mAdapter.items.isEmpty());
+        assertEquals(Collections.singletonList(0), mCompleted);
+    }
+
+    @Test
+    public void emptiedSourceRemovesAllItems() {
+        ContentFilter<Integer> filter = createFilter(20, 10);
+
+        filter.setSource(Collections.<Integer>emptyList());
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertEquals(Collections.singletonList("remove 0 20"), mAdapter.notifications);
+        assertTrue(mAdapter.items.isEmpty());
+        assertEquals(0, filter.getSourceCount());
+        assertEquals(Collections.singletonList(0), mCompleted);
+    }
+
+    @Test
+    public void hiddenSelectionIsRestoredByLaterQuery() {
+        ContentFilter<Integer> filter = createFilter(20, 5);
+        mAdapter.setRangeSelected(5, 1, true);
+        mAdapter.setRangeSelected(12, 1, true);
+
+        filter.filter(new ContentFilter.Predicate<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return item >= 10;
+            }
+        });
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertEquals(10, mAdapter.items.size());
+        // item 12 has moved to position 2 along with its selection
+        assertTrue(mAdapter.isSelected(2));
+        assertFalse(mAdapter.isSelected(5));
+
+        filter.filter(null);
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertEquals(select(20, null), mAdapter.items);
+        assertTrue(mAdapter.isSelected(5));
+        assertTrue(mAdapter.isSelected(12));
+        for (int position = 0; position < 20; position++) {
+            if (position != 5 && position != 12) {
+                assertFalse("position " + position, mAdapter.isSelected(position));
+            }
+        }
+    }
+
+    private ContentFilter<Integer> createFilter(int sourceCount, int chunkSize) {
+        mAdapter.items.addAll(select(sourceCount, null));
+        ContentFilter<Integer> filter = new ContentFilter<>(mAdapter, mAdapter.items);
+        filter.setExecutor(SYNCHRONOUS);
+        filter.setChunkSize(chunkSize);
+        filter.setOnFilterCompleteListener(new ContentFilter.OnFilterCompleteListener() {
+            @Override
+            public void onFilterComplete(int matchCount) {
+                mCompleted.add(matchCount);
+            }
+        });
+        return filter;
+    }
+
+    /**
+     * Check that the notified insertions and removals add up to the current item count.
+     */
+    private void assertNotificationsMatchSize(int initialSize) {
+        int size = initialSize;
+        for (String notification : mAdapter.notifications) {
+            String[] parts = notification.split(" ");
+            if (parts[0].equals("insert")) {
+                size += Integer.parseInt(parts[2]);
+            } else if (parts[0].equals("remove")) {
+                size -= Integer.parseInt(parts[2]);
+            }
+        }
+        assertEquals(mAdapter.items.size(), size);
+    }
+
+    private static List<Integer> select(int count, ContentFilter.Predicate<Integer> predicate) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (predicate == null || predicate.matches(i)) {
+                items.add(i);
+            }
+        }
+        return items;
+    }
+}
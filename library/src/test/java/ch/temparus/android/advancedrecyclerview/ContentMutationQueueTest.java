@@ -0,0 +1,152 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks which range notifications the queued changes are coalesced into and that stale positions are dropped.
+ *
+ * @author Sandro Lutz
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ContentMutationQueueTest {
+
+    private ListAdapter<String> mAdapter;
+    private ContentMutationQueue<String> mQueue;
+
+    @Before
+    public void setUp() {
+        mAdapter = new ListAdapter<>(RuntimeEnvironment.application);
+        mAdapter.items.addAll(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"));
+        mQueue = new ContentMutationQueue<>(mAdapter, mAdapter.items);
+    }
+
+    @Test
+    public void appendedItemsAreNotifiedAsOneRange() {
+        for (int i = 0; i < 100; i++) {
+            mQueue.add("new" + i);
+        }
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("insert 10 100"), mAdapter.notifications);
+        assertEquals(110, mAdapter.items.size());
+        assertEquals("new99", mAdapter.items.get(109));
+    }
+
+    @Test
+    public void insertInsidePendingRangeExtendsIt() {
+        mQueue.add(2, "a");
+        mQueue.add(3, "b");
+        mQueue.add(3, "c");
+        mQueue.add(2, "d");
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("insert 2 4"), mAdapter.notifications);
+        assertEquals(Arrays.asList("0", "1", "d", "a", "c", "b", "2"), mAdapter.items.subList(0, 7));
+    }
+
+    @Test
+    public void insertOutsidePendingRangeStartsNewRange() {
+        mQueue.add(2, "a");
+        mQueue.add(4, "b");
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("insert 2 1", "insert 4 1"), mAdapter.notifications);
+    }
+
+    @Test
+    public void removeAtOrBeforePendingRangeExtendsIt() {
+        mQueue.remove(5);
+        mQueue.remove(5);
+        mQueue.remove(4);
+        mQueue.remove(3);
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("remove 3 4"), mAdapter.notifications);
+        assertEquals(Arrays.asList("0", "1", "2", "7", "8", "9"), mAdapter.items);
+    }
+
+    @Test
+    public void removeBehindPendingRangeStartsNewRange() {
+        mQueue.remove(3);
+        mQueue.remove(4);
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("remove 3 1", "remove 4 1"), mAdapter.notifications);
+        assertEquals(Arrays.asList("0", "1", "2", "4", "6", "7", "8", "9"), mAdapter.items);
+    }
+
+    @Test
+    public void changesAroundPendingRangeExtendIt() {
+        mQueue.set(4, "a");
+        mQueue.set(5, "b");
+        mQueue.set(4, "c");
+        mQueue.set(3, "d");
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("change 3 3"), mAdapter.notifications);
+        assertEquals(Arrays.asList("d", "c", "b"), mAdapter.items.subList(3, 6));
+    }
+
+    @Test
+    public void mixedKindsAreNotifiedInOrder() {
+        mQueue.add(0, "a");
+        mQueue.add(1, "b");
+        mQueue.set(1, "c");
+        mQueue.remove(0);
+        mQueue.remove(0);
+        mQueue.add("d");
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("insert 0 2", "change 1 1", "remove 0 2", "insert 10 1"), mAdapter.notifications);
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "d"), mAdapter.items);
+    }
+
+    @Test
+    public void removeItemRemovesFirstOccurrenceOnly() {
+        mQueue.removeItem("3");
+        mQueue.removeItem("missing");
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("remove 3 1"), mAdapter.notifications);
+        assertEquals(9, mAdapter.items.size());
+    }
+
+    @Test
+    public void stalePositionsAreDropped() {
+        final List<String> dropped = new ArrayList<>();
+        mQueue.setOnChangeDroppedListener(new ContentMutationQueue.OnChangeDroppedListener<String>() {
+            @Override
+            public void onChangeDropped(int position, String item) {
+                dropped.add(position + " " + item);
+            }
+        });
+        mQueue.remove(0);
+        mQueue.remove(9);
+        mQueue.set(9, "a");
+        mQueue.add(10, "b");
+        mQueue.add(9, "c");
+        mQueue.remove(0);
+        mQueue.flush();
+
+        assertEquals(Arrays.asList("9 null", "9 a", "10 b"), dropped);
+        assertEquals(Arrays.asList("remove 0 1", "insert 9 1", "remove 0 1"), mAdapter.notifications);
+        assertEquals(Arrays.asList("2", "3", "4", "5", "6", "7", "8", "9", "c"), mAdapter.items);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void negativePositionIsRejected() {
+        mQueue.remove(-1);
+    }
+}
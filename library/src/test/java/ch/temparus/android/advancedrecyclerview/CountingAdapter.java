@@ -0,0 +1,63 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Synthetic BaseAdapter with fixed size items counting its create and bind calls.
+ *
+ * @author Sandro Lutz
+ */
+class CountingAdapter extends BaseAdapter<BaseAdapter.ViewHolder> {
+
+    private final int mItemSize;
+    private int mItemCount;
+
+    int createCount = 0;
+    int bindCount = 0;
+
+    CountingAdapter(Context context, int itemCount, int itemSize) {
+        super(context);
+        mItemCount = itemCount;
+        mItemSize = itemSize;
+    }
+
+    void setItemCount(int itemCount) {
+        mItemCount = itemCount;
+    }
+
+    void resetCounts() {
+        createCount = 0;
+        bindCount = 0;
+    }
+
+    @Override
+    public ViewHolder onCreateContentViewHolder(ViewGroup parent, int viewType) {
+        createCount++;
+        View view = new View(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mItemSize));
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindContentViewHolder(ViewHolder holder, int position, boolean selected) {
+        bindCount++;
+    }
+
+    @Override
+    public int getContentItemCount() {
+        return mItemCount;
+    }
+
+    @Override
+    public boolean isContentSelectable(int position) {
+        return true;
+    }
+
+    @Override
+    public Object getContentItem(int position) {
+        return position;
+    }
+}
@@ -0,0 +1,331 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts upper bounds on the work done by the layout managers of this library per layout and scroll step,
+ * so that regressions making a measure or layout pass depend on the adapter size fail.
+ *
+ * @author Sandro Lutz
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LayoutPerformanceTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ITEM_SIZE = 40;
+    private static final int VISIBLE_ITEMS = HEIGHT / ITEM_SIZE;
+    private static final int SPAN_COUNT = 3;
+
+    private static final int SMALL = 100;
+    private static final int LARGE = 10000;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void linearExactLayoutBindsVisibleItemsOnly() {
+        for (int itemCount : new int[] { SMALL, LARGE }) {
+            CountingAdapter adapter = new CountingAdapter(mContext, itemCount, ITEM_SIZE);
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext), adapter, metrics);
+
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+
+            assertEquals(0, metrics.getMeasuredChildCount());
+            assertAtMost("binds (" + itemCount + " items)", VISIBLE_ITEMS + 1, adapter.bindCount);
+            assertAtMost("creates (" + itemCount + " items)", VISIBLE_ITEMS + 1, adapter.createCount);
+        }
+    }
+
+    @Test
+    public void linearWrapContentMeasureIsBoundedByViewport() {
+        long[] measuredChildren = new long[2];
+        int[] sizes = new int[] { SMALL, LARGE };
+        for (int i = 0; i < sizes.length; i++) {
+            CountingAdapter adapter = new CountingAdapter(mContext, sizes[i], ITEM_SIZE);
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext), adapter, metrics);
+
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            measuredChildren[i] = metrics.getMeasuredChildCount();
+            assertEquals(HEIGHT, view.getMeasuredHeight());
+            assertAtMost("measured children (" + sizes[i] + " items)", VISIBLE_ITEMS + 1, measuredChildren[i]);
+            assertAtMost("binds (" + sizes[i] + " items)", 2 * (VISIBLE_ITEMS + 1), adapter.bindCount);
+        }
+        assertEquals("measure pass must not depend on the item count", measuredChildren[0], measuredChildren[1]);
+    }
+
+    @Test
+    public void linearWrapContentWithHeadersIsBoundedByViewport() {
+        CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+        adapter.addHeader(createHeader());
+        adapter.addHeader(createHeader());
+        RecyclerMetrics metrics = new RecyclerMetrics();
+        AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext), adapter, metrics);
+
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+        assertAtMost("measured children", VISIBLE_ITEMS + 1, metrics.getMeasuredChildCount());
+        assertAtMost("binds", 2 * (VISIBLE_ITEMS + 1), adapter.bindCount);
+    }
+
+    @Test
+    public void linearWrapContentShrinksToSmallContent() {
+        CountingAdapter adapter = new CountingAdapter(mContext, 5, ITEM_SIZE);
+        RecyclerMetrics metrics = new RecyclerMetrics();
+        AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext), adapter, metrics);
+
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+        assertEquals(5 * ITEM_SIZE, view.getMeasuredHeight());
+        assertAtMost("measured children", 5, metrics.getMeasuredChildCount());
+    }
+
+    @Test
+    public void headerWorkaroundIsBoundedByViewport() {
+        for (int i = 0; i < 2; i++) {
+            CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+            adapter.addHeader(createHeader());
+            adapter.addHeader(createHeader());
+            RecyclerView.LayoutManager layoutManager = i == 0
+                    ? new LinearLayoutManager(mContext, adapter)
+                    : new GridLayoutManager(mContext, SPAN_COUNT, adapter);
+            int maxMeasured = i == 0 ? VISIBLE_ITEMS + 1 : SPAN_COUNT * (VISIBLE_ITEMS + 2);
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(layoutManager, adapter, metrics);
+
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            assertEquals(HEIGHT, view.getMeasuredHeight());
+            assertAtMost("measured children (" + layoutManager.getClass().getSimpleName() + ")",
+                    maxMeasured, metrics.getMeasuredChildCount());
+        }
+    }
+
+    @Test
+    public void headerWorkaroundFollowsItemCountChanges() {
+        CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+        AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext, adapter), adapter, new RecyclerMetrics());
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        assertEquals(HEIGHT, view.getMeasuredHeight());
+
+        adapter.setItemCount(5);
+        adapter.notifyDataSetChanged();
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+        assertEquals(5 * ITEM_SIZE, view.getMeasuredHeight());
+    }
+
+    @Test
+    public void uniformChildSizeMeasuresWithoutBinding() {
+        LinearLayoutManager linearManager = new LinearLayoutManager(mContext);
+        linearManager.setChildSize(ITEM_SIZE);
+        GridLayoutManager gridManager = new GridLayoutManager(mContext, SPAN_COUNT);
+        gridManager.setChildSize(ITEM_SIZE);
+
+        for (RecyclerView.LayoutManager layoutManager : new RecyclerView.LayoutManager[] { linearManager, gridManager }) {
+            CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+            adapter.addHeader(createHeader());
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(layoutManager, adapter, metrics);
+
+            view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            assertEquals(HEIGHT, view.getMeasuredHeight());
+            assertEquals(0, metrics.getMeasuredChildCount());
+            assertEquals(0, adapter.bindCount);
+        }
+    }
+
+    @Test
+    public void linearScrollStepBindsEnteringItemsOnly() {
+        CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+        RecyclerMetrics metrics = new RecyclerMetrics();
+        AdvancedRecyclerView view = createView(new LinearLayoutManager(mContext), adapter, metrics);
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        adapter.resetCounts();
+        metrics.reset();
+
+        view.scrollBy(0, 10 * ITEM_SIZE);
+
+        assertEquals(0, metrics.getMeasuredChildCount());
+        assertAtMost("binds", 10 + 1, adapter.bindCount);
+        assertAtMost("creates", 10 + 1, adapter.createCount);
+    }
+
+    @Test
+    public void gridExactLayoutBindsVisibleItemsOnly() {
+        for (int itemCount : new int[] { SMALL, LARGE }) {
+            CountingAdapter adapter = new CountingAdapter(mContext, itemCount, ITEM_SIZE);
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(new GridLayoutManager(mContext, SPAN_COUNT), adapter, metrics);
+
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+
+            assertEquals(0, metrics.getMeasuredChildCount());
+            assertAtMost("binds (" + itemCount + " items)", SPAN_COUNT * (VISIBLE_ITEMS + 1), adapter.bindCount);
+        }
+    }
+
+    @Test
+    public void gridWrapContentMeasureIsBoundedByViewport() {
+        long[] measuredChildren = new long[2];
+        int[] sizes = new int[] { SMALL, LARGE };
+        for (int i = 0; i < sizes.length; i++) {
+            CountingAdapter adapter = new CountingAdapter(mContext, sizes[i], ITEM_SIZE);
+            adapter.addHeader(createHeader());
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView view = createView(new GridLayoutManager(mContext, SPAN_COUNT), adapter, metrics);
+
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            measuredChildren[i] = metrics.getMeasuredChildCount();
+            assertAtMost("measured children (" + sizes[i] + " items)", SPAN_COUNT * (VISIBLE_ITEMS + 2), measuredChildren[i]);
+        }
+        assertEquals("measure pass must not depend on the item count", measuredChildren[0], measuredChildren[1]);
+    }
+
+    @Test
+    public void gridScrollStepBindsEnteringRowsOnly() {
+        CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+        RecyclerMetrics metrics = new RecyclerMetrics();
+        AdvancedRecyclerView view = createView(new GridLayoutManager(mContext, SPAN_COUNT), adapter, metrics);
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        adapter.resetCounts();
+
+        view.scrollBy(0, 10 * ITEM_SIZE);
+
+        assertAtMost("binds", SPAN_COUNT * (10 + 1), adapter.bindCount);
+    }
+
+    @Test
+    public void gridHeaderWorkaroundKeepsRowCache() {
+        CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+        adapter.addHeader(createHeader());
+        RecyclerMetrics metrics = new RecyclerMetrics();
+        AdvancedRecyclerView view = createView(new GridLayoutManager(mContext, SPAN_COUNT, adapter), adapter, metrics);
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        assertTrue(metrics.getMeasuredChildCount() > 0);
+        metrics.reset();
+
+        // the layout has processed the notifyDataSetChanged() of the first measure pass
+        view.requestLayout();
+        layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+        assertEquals(HEIGHT, view.getMeasuredHeight());
+        assertEquals(0, metrics.getMeasuredChildCount());
+    }
+
+    @Test
+    public void headerWorkaroundKeepsExtentIndex() {
+        for (int i = 0; i < 2; i++) {
+            CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+            adapter.addHeader(createHeader());
+            RecyclerView.LayoutManager layoutManager = i == 0
+                    ? new LinearLayoutManager(mContext, adapter)
+                    : new GridLayoutManager(mContext, SPAN_COUNT, adapter);
+            AdvancedRecyclerView view = createView(layoutManager, adapter, new RecyclerMetrics());
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+            for (int step = 0; step < 20; step++) {
+                view.scrollBy(0, HEIGHT / 2);
+            }
+            // first item of a row scrolled out of the viewport, neither measured nor laid out again
+            int position = 1 + SPAN_COUNT * VISIBLE_ITEMS * 2;
+            assertTrue(getExtentIndex(layoutManager).get(position) != ItemExtentIndex.UNKNOWN);
+
+            view.requestLayout();
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            assertTrue(layoutManager.getClass().getSimpleName() + " lost the extent of position " + position,
+                    getExtentIndex(layoutManager).get(position) != ItemExtentIndex.UNKNOWN);
+
+            adapter.notifyDataSetChanged();
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            assertEquals(ItemExtentIndex.UNKNOWN, getExtentIndex(layoutManager).get(position));
+        }
+    }
+
+    @Test
+    public void restoredSnapshotSurvivesHeaderWorkaround() {
+        for (int i = 0; i < 2; i++) {
+            CountingAdapter adapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+            adapter.addHeader(createHeader());
+            RecyclerView.LayoutManager layoutManager = createWorkaroundLayoutManager(i == 0, adapter);
+            AdvancedRecyclerView view = createView(layoutManager, adapter, new RecyclerMetrics());
+            layout(view, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+            LayoutSnapshot snapshot = LayoutSnapshot.capture(layoutManager, 1);
+
+            CountingAdapter restoredAdapter = new CountingAdapter(mContext, LARGE, ITEM_SIZE);
+            restoredAdapter.addHeader(createHeader());
+            RecyclerView.LayoutManager restoredManager = createWorkaroundLayoutManager(i == 0, restoredAdapter);
+            RecyclerMetrics metrics = new RecyclerMetrics();
+            AdvancedRecyclerView restoredView = createView(restoredManager, restoredAdapter, metrics);
+            assertTrue(snapshot.restore(restoredManager));
+
+            layout(restoredView, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+            // the layout has processed the notifyDataSetChanged() of the first measure pass
+            restoredView.requestLayout();
+            layout(restoredView, View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+
+            assertEquals(HEIGHT, restoredView.getMeasuredHeight());
+            assertEquals(restoredManager.getClass().getSimpleName() + " measured children",
+                    0, metrics.getMeasuredChildCount());
+        }
+    }
+
+    private RecyclerView.LayoutManager createWorkaroundLayoutManager(boolean linear, RecyclerView.Adapter adapter) {
+        return linear ? new LinearLayoutManager(mContext, adapter) : new GridLayoutManager(mContext, SPAN_COUNT, adapter);
+    }
+
+    private AdvancedRecyclerView createView(RecyclerView.LayoutManager layoutManager, CountingAdapter adapter, RecyclerMetrics metrics) {
+        AdvancedRecyclerView view = new AdvancedRecyclerView(mContext);
+        view.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        view.setLayoutManager(layoutManager);
+        view.setAdapter(adapter);
+        view.setMetrics(metrics);
+        return view;
+    }
+
+    private View createHeader() {
+        View header = new View(mContext);
+        header.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_SIZE));
+        return header;
+    }
+
+    private static ItemExtentIndex getExtentIndex(RecyclerView.LayoutManager layoutManager) {
+        return layoutManager instanceof GridLayoutManager
+                ? ((GridLayoutManager) layoutManager).getExtentIndex()
+                : ((LinearLayoutManager) layoutManager).getExtentIndex();
+    }
+
+    private static void layout(View view, int heightSpec) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), heightSpec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    private static void assertAtMost(String message, long expectedMaximum, long actual) {
+        assertTrue(message + ": expected at most " + expectedMaximum + " but was " + actual, actual <= expectedMaximum);
+    }
+}
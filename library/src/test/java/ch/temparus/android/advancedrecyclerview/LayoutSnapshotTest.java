@@ -0,0 +1,152 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Writes and reads layout snapshots, including files which have been truncated or corrupted.
+ *
+ * @author Sandro Lutz
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LayoutSnapshotTest {
+
+    // magic, format version, data version, type, orientation, span count, anchor position and offset, cross size and extent
+    private static final int ITEM_COUNT_OFFSET = 4 + 4 + 8 + 7 * 4;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void gridSnapshotSurvivesRoundTrip() throws IOException {
+        LayoutSnapshot snapshot = createGridSnapshot();
+        File file = mFolder.newFile();
+        snapshot.writeTo(file);
+
+        LayoutSnapshot read = LayoutSnapshot.read(file, 0);
+
+        assertNotNull(read);
+        assertEquals(0, read.getDataVersion());
+        assertEquals(LayoutSnapshot.TYPE_GRID, read.type);
+        assertEquals(snapshot.orientation, read.orientation);
+        assertEquals(snapshot.spanCount, read.spanCount);
+        assertEquals(snapshot.anchorPosition, read.anchorPosition);
+        assertEquals(snapshot.anchorOffset, read.anchorOffset);
+        assertEquals(snapshot.crossSize, read.crossSize);
+        assertEquals(snapshot.crossExtent, read.crossExtent);
+        assertEquals(snapshot.itemCount, read.itemCount);
+        assertArrayEquals(snapshot.extents, read.extents);
+        assertEquals(snapshot.rowCount, read.rowCount);
+        assertEquals(snapshot.rowEndPosition, read.rowEndPosition);
+        assertArrayEquals(snapshot.rowStarts, read.rowStarts);
+        assertArrayEquals(snapshot.rowExtents, read.rowExtents);
+    }
+
+    @Test
+    public void staggeredGridSnapshotSurvivesRoundTrip() throws IOException {
+        LayoutSnapshot snapshot = new LayoutSnapshot();
+        snapshot.type = LayoutSnapshot.TYPE_STAGGERED_GRID;
+        snapshot.spanCount = 2;
+        snapshot.crossSize = 480;
+        snapshot.itemCount = 4;
+        snapshot.extents = new int[] { 40, 80, ItemExtentIndex.UNKNOWN, 60 };
+        snapshot.spans = new int[] { 0, 1, ItemSpanCache.UNKNOWN, ItemSpanCache.FULL_SPAN };
+        File file = mFolder.newFile();
+        snapshot.writeTo(file);
+
+        LayoutSnapshot read = LayoutSnapshot.read(file, 0);
+
+        assertNotNull(read);
+        assertArrayEquals(snapshot.extents, read.extents);
+        assertArrayEquals(snapshot.spans, read.spans);
+    }
+
+    @Test
+    public void readIgnoresOtherDataVersion() throws IOException {
+        File file = mFolder.newFile();
+        createGridSnapshot().writeTo(file);
+
+        assertNull(LayoutSnapshot.read(file, 1));
+    }
+
+    @Test
+    public void readIgnoresMissingAndEmptyFiles() throws IOException {
+        assertNull(LayoutSnapshot.read(new File(mFolder.getRoot(), "missing"), 0));
+        assertNull(LayoutSnapshot.read(mFolder.newFile(), 0));
+    }
+
+    @Test
+    public void readIgnoresTruncatedFile() throws IOException {
+        File file = mFolder.newFile();
+        createGridSnapshot().writeTo(file);
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.setLength(output.length() - 4);
+        } finally {
+            output.close();
+        }
+
+        assertNull(LayoutSnapshot.read(file, 0));
+    }
+
+    @Test
+    public void readIgnoresOtherFormat() throws IOException {
+        File file = mFolder.newFile();
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(new byte[] { 'n', 'o', 't', ' ', 'a', ' ', 's', 'n', 'a', 'p', 's', 'h', 'o', 't' });
+        } finally {
+            output.close();
+        }
+
+        assertNull(LayoutSnapshot.read(file, 0));
+    }
+
+    @Test
+    public void readIgnoresCorruptItemCount() throws IOException {
+        for (int itemCount : new int[] { -1, Integer.MAX_VALUE }) {
+            File file = mFolder.newFile();
+            createGridSnapshot().writeTo(file);
+            RandomAccessFile output = new RandomAccessFile(file, "rw");
+            try {
+                output.seek(ITEM_COUNT_OFFSET);
+                output.writeInt(itemCount);
+            } finally {
+                output.close();
+            }
+
+            assertNull("item count " + itemCount, LayoutSnapshot.read(file, 0));
+        }
+    }
+
+    private static LayoutSnapshot createGridSnapshot() {
+        LayoutSnapshot snapshot = new LayoutSnapshot();
+        snapshot.type = LayoutSnapshot.TYPE_GRID;
+        snapshot.spanCount = 3;
+        snapshot.anchorPosition = 7;
+        snapshot.anchorOffset = -12;
+        snapshot.crossSize = 480;
+        snapshot.itemCount = 5;
+        snapshot.extents = new int[] { 40, 0, 0, 50, ItemExtentIndex.UNKNOWN };
+        snapshot.rowCount = 2;
+        snapshot.rowEndPosition = 5;
+        snapshot.rowStarts = new int[] { 0, 3 };
+        snapshot.rowExtents = new int[] { 40, 50 };
+        return snapshot;
+    }
+}
@@ -0,0 +1,75 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BaseAdapter showing a list of items and recording the range notifications it sends,
+ * e.g. "insert 3 2" for two items inserted at adapter position 3.
+ *
+ * @author Sandro Lutz
+ */
+class ListAdapter<T> extends BaseAdapter<BaseAdapter.ViewHolder> {
+
+    List<T> items = new ArrayList<>();
+    final List<String> notifications = new ArrayList<>();
+
+    ListAdapter(Context context) {
+        super(context);
+        registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                notifications.add("changed");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifications.add("change " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                notifications.add("insert " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                notifications.add("remove " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                notifications.add("move " + fromPosition + " " + toPosition + " " + itemCount);
+            }
+        });
+    }
+
+    @Override
+    public ViewHolder onCreateContentViewHolder(ViewGroup parent, int viewType) {
+        return new ViewHolder(new View(parent.getContext()));
+    }
+
+    @Override
+    public void onBindContentViewHolder(ViewHolder holder, int position, boolean selected) {
+    }
+
+    @Override
+    public int getContentItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isContentSelectable(int position) {
+        return true;
+    }
+
+    @Override
+    public Object getContentItem(int position) {
+        return items.get(position);
+    }
+}
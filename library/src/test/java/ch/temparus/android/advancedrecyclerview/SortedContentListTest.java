@@ -0,0 +1,223 @@
+package ch.temparus.android.advancedrecyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the batch merge of SortedContentList and the range notifications it sends.
+ *
+ * @author Sandro Lutz
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SortedContentListTest {
+
+    private static final Comparator<Integer> NUMBERS = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer lhs, Integer rhs) {
+            return lhs.compareTo(rhs);
+        }
+    };
+
+    private static final Comparator<Item> BY_VALUE = new Comparator<Item>() {
+        @Override
+        public int compare(Item lhs, Item rhs) {
+            return lhs.value < rhs.value ? -1 : (lhs.value == rhs.value ? 0 : 1);
+        }
+    };
+
+    private static final SortedContentList.KeyProvider<Item> BY_KEY = new SortedContentList.KeyProvider<Item>() {
+        @Override
+        public Object getKey(Item item) {
+            return item.key;
+        }
+    };
+
+    private ListAdapter<Object> mAdapter;
+
+    @Before
+    public void setUp() {
+        mAdapter = new ListAdapter<>(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void interleavedBatchIsMergedIntoNonEmptyList() {
+        SortedContentList<Integer> list = createNumberList(10, 20, 30, 40);
+
+        list.addAll(Arrays.asList(25, 5, 45, 35, 15, 26));
+
+        assertEquals(Arrays.asList(5, 10, 15, 20, 25, 26, 30, 35, 40, 45), list);
+        // ascending and in final coordinates
+        assertEquals(Arrays.asList("insert 0 1", "insert 2 1", "insert 4 2", "insert 7 1", "insert 9 1"),
+                mAdapter.notifications);
+    }
+
+    @Test
+    public void equalItemsAreInsertedBehindExistingOnes() {
+        SortedContentList<Integer> list = createNumberList(10, 20, 30);
+
+        list.addAll(Arrays.asList(20, 20));
+
+        assertEquals(Arrays.asList(10, 20, 20, 20, 30), list);
+        assertEquals(Arrays.asList("insert 2 2"), mAdapter.notifications);
+    }
+
+    @Test
+    public void lastItemOfDuplicateKeysInBatchWins() {
+        SortedContentList<Item> list = createItemList(new Item("x", 10));
+        Item b = new Item("b", 3);
+        Item a = new Item("a", 7);
+
+        list.beginBatch();
+        list.add(new Item("a", 5));
+        list.add(b);
+        list.add(new Item("b", 1));
+        list.add(a);
+        list.add(b);
+        list.endBatch();
+
+        assertEquals(Arrays.asList(b, a, list.get(2)), list);
+        assertEquals("x", list.get(2).key);
+        assertEquals(Arrays.asList("insert 0 2"), mAdapter.notifications);
+    }
+
+    @Test
+    public void keyWithSameSortPositionIsReplacedInPlace() {
+        Item a = new Item("a", 1);
+        SortedContentList<Item> list = createItemList(a, new Item("b", 2), new Item("c", 3));
+        Item replacement = new Item("b", 2);
+
+        list.addAll(Collections.singletonList(replacement));
+
+        assertEquals(3, list.size());
+        assertTrue(list.get(1) == replacement);
+        assertEquals(Arrays.asList("change 1 1"), mAdapter.notifications);
+    }
+
+    @Test
+    public void keyWithChangedSortPositionIsMoved() {
+        Item a = new Item("a", 1);
+        Item b = new Item("b", 2);
+        Item c = new Item("c", 3);
+        SortedContentList<Item> list = createItemList(a, b, c);
+        Item movedA = new Item("a", 5);
+        Item movedC = new Item("c", 0);
+
+        list.addAll(Arrays.asList(movedA, movedC));
+
+        assertEquals(Arrays.asList(movedC, b, movedA), list);
+        // the old items are removed first, the new ones inserted in final coordinates
+        assertEquals(Arrays.asList("remove 0 1", "remove 1 1", "insert 0 1", "insert 2 1"), mAdapter.notifications);
+        assertEquals(0, list.indexOf(movedC));
+        assertEquals(-1, list.indexOf(c));
+
+        // the keys follow the new items
+        mAdapter.notifications.clear();
+        list.add(new Item("a", 5));
+        assertEquals(3, list.size());
+        assertEquals(Arrays.asList("change 2 1"), mAdapter.notifications);
+    }
+
+    @Test
+    public void singleAddWithChangedSortPositionIsMoved() {
+        Item a = new Item("a", 1);
+        Item b = new Item("b", 2);
+        SortedContentList<Item> list = createItemList(a, b);
+        Item movedA = new Item("a", 3);
+
+        list.add(movedA);
+
+        assertEquals(Arrays.asList(b, movedA), list);
+        assertEquals(Arrays.asList("remove 0 1", "insert 1 1"), mAdapter.notifications);
+    }
+
+    @Test
+    public void randomBatchesMatchSortedListAndNotifications() {
+        Random random = new Random(42);
+        SortedContentList<Integer> list = createNumberList();
+        List<Integer> expected = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            List<Integer> batch = new ArrayList<>();
+            int batchSize = random.nextInt(40);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(random.nextInt(200));
+            }
+            List<Object> replayed = new ArrayList<Object>(list);
+            mAdapter.notifications.clear();
+
+            list.addAll(batch);
+
+            expected.addAll(batch);
+            Collections.sort(expected);
+            assertEquals(expected, list);
+
+            // applying the notifications in order to the old list must result in the new list
+            int previousEnd = -1;
+            for (String notification : mAdapter.notifications) {
+                String[] parts = notification.split(" ");
+                assertEquals("insert", parts[0]);
+                int start = Integer.parseInt(parts[1]);
+                int count = Integer.parseInt(parts[2]);
+                assertTrue("ranges must be ascending: " + mAdapter.notifications, start > previousEnd);
+                replayed.addAll(start, list.subList(start, start + count));
+                previousEnd = start + count;
+            }
+            assertEquals(list, replayed);
+        }
+    }
+
+    private SortedContentList<Integer> createNumberList(Integer... numbers) {
+        SortedContentList<Integer> list = new SortedContentList<>(mAdapter, NUMBERS);
+        setAdapterItems(list);
+        for (Integer number : numbers) {
+            list.add(number);
+        }
+        mAdapter.notifications.clear();
+        return list;
+    }
+
+    private SortedContentList<Item> createItemList(Item... items) {
+        SortedContentList<Item> list = new SortedContentList<>(mAdapter, BY_VALUE, BY_KEY);
+        setAdapterItems(list);
+        for (Item item : items) {
+            list.add(item);
+        }
+        mAdapter.notifications.clear();
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setAdapterItems(List<?> list) {
+        mAdapter.items = (List<Object>) list;
+    }
+
+    private static class Item {
+
+        private final String key;
+        private final int value;
+
+        private Item(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}